@@ -7,6 +7,7 @@ import java.lang.annotation.*;
 
 /**
  * rsocket handler annotation.
+ * DataBuffer or ByteBuf arguments are passed without copy, the handler releases them unless returned.
  * @author youta
  */
 @Target(ElementType.METHOD)
@@ -0,0 +1,19 @@
+package io.irain.shore.rsocket.common.annotations;
+
+import java.lang.annotation.*;
+
+/**
+ * rsocket remote call timeout annotation, propagated to the server as request deadline.
+ * @author youta
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RSocketTimeout {
+
+    /**
+     * The timeout in milliseconds.
+     * @return the timeout in milliseconds.
+     */
+    long value();
+}
@@ -11,4 +11,15 @@ public class RSocketConstants {
      */
     public static final String RSOCKET_ENDPOINT_NAME = "rsocketlb";
 
+    /**
+     * request deadline metadata mime type, value is the remaining time in milliseconds when the request is sent,
+     * the receiver turns it into a deadline of its own clock so clock skew between hosts does not matter.
+     */
+    public static final String DEADLINE_MIME_TYPE = "message/x.shore.rsocket.deadline.v1";
+
+    /**
+     * request deadline header and reactor context key, value is the absolute deadline in epoch milliseconds of the local clock.
+     */
+    public static final String DEADLINE_KEY = "rsocketDeadline";
+
 }
@@ -0,0 +1,107 @@
+package io.irain.shore.rsocket.loadbalance;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.rsocket.transport.ClientTransport;
+import io.rsocket.transport.netty.client.TcpClientTransport;
+import io.rsocket.transport.netty.client.WebsocketClientTransport;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+import reactor.netty.tcp.TcpClient;
+import reactor.netty.tcp.TcpResources;
+
+/**
+ * rsocket client transport factory, builds every client transport on shared loop resources and connection provider.
+ * @author youta
+ */
+public class RSocketClientTransportFactory {
+    private final RSocketTransportProperties properties;
+    private final LoopResources loopResources;
+    private final ConnectionProvider connectionProvider;
+
+    /**
+     * Constructor with default properties and the global reactor netty resources.
+     */
+    public RSocketClientTransportFactory() {
+        this(new RSocketTransportProperties(), TcpResources.get(), TcpResources.get());
+    }
+
+    /**
+     * Constructor.
+     * @param properties transport properties
+     * @param loopResources loop resources
+     * @param connectionProvider connection provider
+     */
+    public RSocketClientTransportFactory(RSocketTransportProperties properties, LoopResources loopResources, ConnectionProvider connectionProvider) {
+        this.properties = properties;
+        this.loopResources = loopResources;
+        this.connectionProvider = connectionProvider;
+    }
+
+    /**
+     * Get loop resources.
+     * @return loop resources
+     */
+    public LoopResources getLoopResources() {
+        return loopResources;
+    }
+
+    /**
+     * Create client transport for rsocket server instance.
+     * @param server rsocket server instance
+     * @return client transport
+     */
+    public ClientTransport create(RSocketServerInstance server) {
+        if (server.isWebSocket()) {
+            HttpClient httpClient = configureTcp(configure(HttpClient.create(connectionProvider)))
+                    .host(server.getHost())
+                    .port(server.getPort());
+            if ("wss".equals(server.getSchema())) {
+                httpClient = httpClient.secure();
+            }
+            return WebsocketClientTransport.create(httpClient, server.getPath());
+        }
+        if (server.isUnixDomainSocket()) {
+            return TcpClientTransport.create(configure(TcpClient.create(connectionProvider))
+                    .remoteAddress(() -> new DomainSocketAddress(server.getPath())));
+        }
+        return TcpClientTransport.create(configureTcp(configure(TcpClient.create(connectionProvider)))
+                .host(server.getHost())
+                .port(server.getPort()));
+    }
+
+    /**
+     * Apply loop resources, allocator and connect timeout.
+     * @param client reactor netty client
+     * @param <T> client type
+     * @return configured client
+     */
+    private <T extends reactor.netty.transport.ClientTransport<T, ?>> T configure(T client) {
+        T configured = client.runOn(loopResources, properties.isPreferNative())
+                .option(ChannelOption.ALLOCATOR, properties.isPooledAllocator() ? PooledByteBufAllocator.DEFAULT : UnpooledByteBufAllocator.DEFAULT);
+        if (properties.getConnectTimeout() != null) {
+            configured = configured.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getConnectTimeout().toMillis());
+        }
+        return configured;
+    }
+
+    /**
+     * Apply tcp socket options, not supported by unix domain sockets.
+     * @param client reactor netty client
+     * @param <T> client type
+     * @return configured client
+     */
+    private <T extends reactor.netty.transport.ClientTransport<T, ?>> T configureTcp(T client) {
+        T configured = client.option(ChannelOption.TCP_NODELAY, properties.isTcpNoDelay());
+        if (properties.getSendBufferSize() != null) {
+            configured = configured.option(ChannelOption.SO_SNDBUF, properties.getSendBufferSize());
+        }
+        if (properties.getReceiveBufferSize() != null) {
+            configured = configured.option(ChannelOption.SO_RCVBUF, properties.getReceiveBufferSize());
+        }
+        return configured;
+    }
+}
@@ -0,0 +1,75 @@
+package io.irain.shore.rsocket.loadbalance;
+
+import io.netty.buffer.ByteBuf;
+import io.rsocket.metadata.CompositeMetadata;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static io.irain.shore.rsocket.common.constants.RSocketConstants.DEADLINE_KEY;
+import static io.irain.shore.rsocket.common.constants.RSocketConstants.DEADLINE_MIME_TYPE;
+
+/**
+ * rsocket request deadline, carried in the reactor context of the handling request.
+ * @author youta
+ */
+public final class RSocketDeadline {
+
+    private RSocketDeadline() {
+    }
+
+    /**
+     * Get deadline of the current request.
+     * @return absolute deadline in epoch milliseconds, empty if the request has no deadline
+     */
+    public static Mono<Long> get() {
+        return Mono.deferContextual(context -> Mono.justOrEmpty(get(context)));
+    }
+
+    /**
+     * Get remaining time of the current request.
+     * @return remaining time, empty if the request has no deadline
+     */
+    public static Mono<Duration> remaining() {
+        return get().map(RSocketDeadline::remaining);
+    }
+
+    /**
+     * Get deadline from reactor context.
+     * @param context reactor context
+     * @return absolute deadline in epoch milliseconds, null if absent
+     */
+    public static Long get(ContextView context) {
+        return context.getOrDefault(DEADLINE_KEY, null);
+    }
+
+    /**
+     * Read the remaining time from composite metadata as a deadline of the local clock.
+     * @param metadata composite metadata
+     * @return absolute deadline in epoch milliseconds, null if absent
+     * @throws IllegalArgumentException if the metadata is malformed or the remaining time is negative
+     */
+    public static Long fromMetadata(ByteBuf metadata) {
+        for (CompositeMetadata.Entry entry : new CompositeMetadata(metadata, false)) {
+            if (DEADLINE_MIME_TYPE.equals(entry.getMimeType())) {
+                long remaining = Long.parseLong(entry.getContent().toString(StandardCharsets.UTF_8));
+                if (remaining < 0) {
+                    throw new IllegalArgumentException("negative remaining time " + remaining);
+                }
+                return System.currentTimeMillis() + remaining;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get remaining time until the deadline.
+     * @param deadline absolute deadline in epoch milliseconds
+     * @return remaining time, zero if expired
+     */
+    public static Duration remaining(long deadline) {
+        return Duration.ofMillis(Math.max(0, deadline - System.currentTimeMillis()));
+    }
+}
@@ -0,0 +1,155 @@
+package io.irain.shore.rsocket.loadbalance;
+
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.RSocketErrorException;
+import io.rsocket.SocketAcceptor;
+import io.rsocket.exceptions.InvalidException;
+import io.rsocket.exceptions.RejectedException;
+import io.rsocket.metadata.WellKnownMimeType;
+import io.rsocket.plugins.SocketAcceptorInterceptor;
+import io.rsocket.util.RSocketProxy;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static io.irain.shore.rsocket.common.constants.RSocketConstants.DEADLINE_KEY;
+
+/**
+ * rsocket deadline interceptor, rejects expired requests before they reach the handler,
+ * cancels request/response handling once the deadline passes and exposes the deadline to the handler's reactor context.
+ * @author youta
+ */
+public class RSocketDeadlineInterceptor implements SocketAcceptorInterceptor {
+
+    /**
+     * Wrap responders of connections using composite metadata.
+     * @param acceptor socket acceptor
+     * @return socket acceptor
+     */
+    @Override
+    public SocketAcceptor apply(SocketAcceptor acceptor) {
+        return (setup, sendingSocket) -> acceptor.accept(setup, sendingSocket)
+                .map(responder -> WellKnownMimeType.MESSAGE_RSOCKET_COMPOSITE_METADATA.getString().equals(setup.metadataMimeType())
+                        ? new DeadlineRSocket(responder) : responder);
+    }
+
+    /**
+     * no deadline in metadata
+     */
+    private static final long NO_DEADLINE = 0;
+    /**
+     * deadline metadata present but malformed
+     */
+    private static final long MALFORMED_DEADLINE = -1;
+
+    /**
+     * Read the remaining time from composite metadata and turn it into a deadline of the local clock.
+     * @param payload payload
+     * @return absolute deadline in epoch milliseconds, {@link #NO_DEADLINE} if absent, {@link #MALFORMED_DEADLINE} if malformed
+     */
+    private static long deadline(Payload payload) {
+        if (!payload.hasMetadata()) {
+            return NO_DEADLINE;
+        }
+        try {
+            Long deadline = RSocketDeadline.fromMetadata(payload.metadata());
+            return deadline == null ? NO_DEADLINE : deadline;
+        } catch (RuntimeException e) {
+            return MALFORMED_DEADLINE;
+        }
+    }
+
+    /**
+     * Check whether the request has to be rejected.
+     * @param deadline deadline read from metadata
+     * @return rejection, null if the request may proceed
+     */
+    private static RSocketErrorException rejection(long deadline) {
+        if (deadline == MALFORMED_DEADLINE) {
+            return new InvalidException("malformed deadline");
+        }
+        if (deadline <= System.currentTimeMillis()) {
+            return new RejectedException("deadline exceeded");
+        }
+        return null;
+    }
+
+    /**
+     * Responder enforcing request deadlines.
+     */
+    private static class DeadlineRSocket extends RSocketProxy {
+
+        /**
+         * Constructor.
+         * @param source responder
+         */
+        private DeadlineRSocket(RSocket source) {
+            super(source);
+        }
+
+        @Override
+        public Mono<Void> fireAndForget(Payload payload) {
+            long deadline = deadline(payload);
+            if (deadline == NO_DEADLINE) {
+                return super.fireAndForget(payload);
+            }
+            if (rejection(deadline) != null) {
+                payload.release();
+                return Mono.empty();
+            }
+            return super.fireAndForget(payload).contextWrite(context -> context.put(DEADLINE_KEY, deadline));
+        }
+
+        @Override
+        public Mono<Payload> requestResponse(Payload payload) {
+            long deadline = deadline(payload);
+            if (deadline == NO_DEADLINE) {
+                return super.requestResponse(payload);
+            }
+            RSocketErrorException rejection = rejection(deadline);
+            if (rejection != null) {
+                payload.release();
+                return Mono.error(rejection);
+            }
+            return super.requestResponse(payload)
+                    .timeout(RSocketDeadline.remaining(deadline))
+                    .contextWrite(context -> context.put(DEADLINE_KEY, deadline));
+        }
+
+        @Override
+        public Flux<Payload> requestStream(Payload payload) {
+            long deadline = deadline(payload);
+            if (deadline == NO_DEADLINE) {
+                return super.requestStream(payload);
+            }
+            RSocketErrorException rejection = rejection(deadline);
+            if (rejection != null) {
+                payload.release();
+                return Flux.error(rejection);
+            }
+            return super.requestStream(payload).contextWrite(context -> context.put(DEADLINE_KEY, deadline));
+        }
+
+        @Override
+        public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
+            // the deadline travels with the first payload
+            return Flux.from(payloads).switchOnFirst((signal, inbound) -> {
+                Payload first = signal.get();
+                if (first == null) {
+                    return super.requestChannel(inbound);
+                }
+                long deadline = deadline(first);
+                if (deadline == NO_DEADLINE) {
+                    return super.requestChannel(inbound);
+                }
+                RSocketErrorException rejection = rejection(deadline);
+                if (rejection != null) {
+                    // consume and release the first payload, then cancel the inbound
+                    return inbound.take(1).doOnNext(Payload::release).thenMany(Flux.error(rejection));
+                }
+                return super.requestChannel(inbound).contextWrite(context -> context.put(DEADLINE_KEY, deadline));
+            });
+        }
+    }
+}
@@ -1,12 +1,30 @@
 package io.irain.shore.rsocket.loadbalance;
 
+import io.rsocket.frame.decoder.PayloadDecoder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.rsocket.server.RSocketServerCustomizer;
 import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.codec.NettyByteBufDecoder;
+import org.springframework.core.codec.NettyByteBufEncoder;
 import org.springframework.http.codec.cbor.Jackson2CborDecoder;
 import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.messaging.rsocket.RSocketConnectorConfigurer;
 import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.util.MimeTypeUtils;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.nio.file.Paths;
+import java.util.stream.Collectors;
+
+import static io.irain.shore.rsocket.common.constants.RSocketConstants.DEADLINE_KEY;
+import static io.irain.shore.rsocket.common.constants.RSocketConstants.DEADLINE_MIME_TYPE;
 
 /**
  * rsocket load balance configuration
@@ -14,16 +32,82 @@ import org.springframework.scheduling.annotation.EnableScheduling;
  */
 @Configuration
 @EnableScheduling
+@EnableConfigurationProperties({RSocketProperties.class, RSocketServerProperties.class, RSocketRegistryProperties.class,
+        RSocketTransportProperties.class, RSocketOutlierDetectionProperties.class})
 public class RSocketLoadBalanceConfiguration {
 
+    /**
+     * rsocket loop resources bean, shared by all rsocket transports, selectors share the worker threads unless a select count is set
+     * @param properties transport properties
+     * @return loop resources
+     */
+    @Bean(destroyMethod = "dispose")
+    public LoopResources rsocketLoopResources(RSocketTransportProperties properties) {
+        if (properties.getSelectCount() <= 0) {
+            return LoopResources.create("shore-rsocket", properties.getWorkerCount(), true);
+        }
+        return LoopResources.create("shore-rsocket", properties.getSelectCount(), properties.getWorkerCount(), true);
+    }
+
+    /**
+     * rsocket connection provider bean, shared by all rsocket client transports
+     * @param properties transport properties
+     * @return connection provider
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider rsocketConnectionProvider(RSocketTransportProperties properties) {
+        return ConnectionProvider.create("shore-rsocket", properties.getMaxConnections());
+    }
+
+    /**
+     * rsocket client transport factory bean
+     * @param properties transport properties
+     * @param rsocketLoopResources loop resources
+     * @param rsocketConnectionProvider connection provider
+     * @return rsocket client transport factory
+     */
+    @Bean
+    public RSocketClientTransportFactory rsocketClientTransportFactory(RSocketTransportProperties properties,
+                                                                       LoopResources rsocketLoopResources,
+                                                                       ConnectionProvider rsocketConnectionProvider) {
+        return new RSocketClientTransportFactory(properties, rsocketLoopResources, rsocketConnectionProvider);
+    }
+
+    /**
+     * rsocket outlier detector bean
+     * @param properties outlier detection properties
+     * @return rsocket outlier detector
+     */
+    @Bean
+    public RSocketOutlierDetector rsocketOutlierDetector(RSocketOutlierDetectionProperties properties) {
+        return new RSocketOutlierDetector(properties);
+    }
+
+    /**
+     * rsocket registry snapshot store bean
+     * @param properties registry properties
+     * @return rsocket registry snapshot store
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "shore.rsocket.registry", name = "snapshot-file")
+    public RSocketRegistrySnapshotStore rsocketRegistrySnapshotStore(RSocketRegistryProperties properties) {
+        return new RSocketRegistrySnapshotStore(Paths.get(properties.getSnapshotFile()));
+    }
+
     /**
      * rsocket service discovery registry bean
      * @param discoveryClient discovery client
+     * @param transportFactory rsocket client transport factory
+     * @param outlierDetector rsocket outlier detector
+     * @param snapshotStore rsocket registry snapshot store
      * @return rsocket service discovery registry
      */
-    @Bean
-    public RSocketServiceDiscoveryRegistry rsocketServiceDiscoveryRegistry(ReactiveDiscoveryClient discoveryClient) {
-        return new RSocketServiceDiscoveryRegistry(discoveryClient);
+    @Bean(destroyMethod = "dispose")
+    public RSocketServiceDiscoveryRegistry rsocketServiceDiscoveryRegistry(ReactiveDiscoveryClient discoveryClient,
+                                                                           RSocketClientTransportFactory transportFactory,
+                                                                           RSocketOutlierDetector outlierDetector,
+                                                                           ObjectProvider<RSocketRegistrySnapshotStore> snapshotStore) {
+        return new RSocketServiceDiscoveryRegistry(discoveryClient, transportFactory, outlierDetector, snapshotStore.getIfAvailable());
     }
 
     /**
@@ -36,6 +120,53 @@ public class RSocketLoadBalanceConfiguration {
         return new RSocketLoadBalanceEndpoint(rsocketServiceRegistry);
     }
 
+    /**
+     * rsocket unix domain socket server bean
+     * @param properties server properties
+     * @param messageHandler rsocket message handler
+     * @param customizers rsocket server customizers
+     * @param transportFactory rsocket client transport factory
+     * @return rsocket unix domain socket server
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "shore.rsocket.server", name = "unix-path")
+    public RSocketUnixDomainSocketServer rsocketUnixDomainSocketServer(RSocketServerProperties properties,
+                                                                       RSocketMessageHandler messageHandler,
+                                                                       ObjectProvider<RSocketServerCustomizer> customizers,
+                                                                       RSocketClientTransportFactory transportFactory) {
+        return new RSocketUnixDomainSocketServer(properties.getUnixPath(), messageHandler, customizers.orderedStream().collect(Collectors.toList()),
+                transportFactory.getLoopResources());
+    }
+
+    /**
+     * rsocket deadline server customizer bean, drops expired requests before invoking handlers
+     * @return rsocket server customizer
+     */
+    @Bean
+    public RSocketServerCustomizer rsocketDeadlineServerCustomizer() {
+        return server -> server.interceptors(registry -> registry.forSocketAcceptor(new RSocketDeadlineInterceptor()));
+    }
+
+    /**
+     * rsocket zero copy server customizer bean, payloads keep referencing the pooled netty frame buffers
+     * @return rsocket server customizer
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "shore.rsocket", name = "zero-copy", havingValue = "true")
+    public RSocketServerCustomizer rsocketZeroCopyServerCustomizer() {
+        return server -> server.payloadDecoder(PayloadDecoder.ZERO_COPY);
+    }
+
+    /**
+     * rsocket zero copy connector configurer bean, applied to the auto-configured requester builder
+     * @return rsocket connector configurer
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "shore.rsocket", name = "zero-copy", havingValue = "true")
+    public RSocketConnectorConfigurer rsocketZeroCopyConnectorConfigurer() {
+        return connector -> connector.payloadDecoder(PayloadDecoder.ZERO_COPY);
+    }
+
     /**
      * rSocketStrategies bean
      * @return {@link RSocketStrategies}
@@ -43,8 +174,18 @@ public class RSocketLoadBalanceConfiguration {
     @Bean
     public RSocketStrategies rSocketStrategies() {
         return RSocketStrategies.builder()
-                .encoders(encoders -> encoders.add(new Jackson2CborEncoder()))
-                .decoders(decoders -> decoders.add(new Jackson2CborDecoder()))
+                // netty buffers pass through without copy, ahead of cbor which would claim any type
+                .encoders(encoders -> {
+                    encoders.add(new NettyByteBufEncoder());
+                    encoders.add(new Jackson2CborEncoder());
+                })
+                .decoders(decoders -> {
+                    decoders.add(new NettyByteBufDecoder());
+                    decoders.add(new Jackson2CborDecoder());
+                })
+                // remaining time as a deadline of the local clock
+                .metadataExtractorRegistry(registry -> registry.metadataToExtract(MimeTypeUtils.parseMimeType(DEADLINE_MIME_TYPE), String.class,
+                        (remaining, headers) -> headers.put(DEADLINE_KEY, System.currentTimeMillis() + Long.parseLong(remaining))))
                 .build();
     }
 
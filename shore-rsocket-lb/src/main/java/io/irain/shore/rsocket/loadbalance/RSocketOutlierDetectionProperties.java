@@ -0,0 +1,238 @@
+package io.irain.shore.rsocket.loadbalance;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * rsocket outlier detection properties.
+ * @author youta
+ */
+@ConfigurationProperties(prefix = "shore.rsocket.outlier-detection")
+public class RSocketOutlierDetectionProperties {
+    /**
+     * enable passive health tracking and ejection
+     */
+    private boolean enabled = true;
+    /**
+     * consecutive failures (request errors or connect failures) to eject an instance
+     */
+    private int consecutiveFailures = 5;
+    /**
+     * failure ratio within the interval to eject an instance
+     */
+    private double failureRatio = 0.5;
+    /**
+     * minimum requests within the interval before the failure ratio is evaluated
+     */
+    private int minimumRequests = 20;
+    /**
+     * interval of the failure ratio window
+     */
+    private Duration interval = Duration.ofSeconds(10);
+    /**
+     * cool-down of the first ejection, doubled on every consecutive ejection
+     */
+    private Duration baseEjectionTime = Duration.ofSeconds(5);
+    /**
+     * max cool-down of an ejection
+     */
+    private Duration maxEjectionTime = Duration.ofMinutes(5);
+    /**
+     * error codes of stream error frames counted as failures, none by default.
+     * every instance answers a bad request with the same application error (0x201, 513),
+     * add it only if handler errors indicate the health of the instance
+     */
+    private Set<Integer> failureErrorCodes = Set.of();
+    /**
+     * count request/response cancelled by the client once the deadline it carries has passed as failure,
+     * i.e. calls through the remote service proxy timing out after {@code @RSocketTimeout}
+     */
+    private boolean timeoutsAsFailures = true;
+    /**
+     * count any request/response cancelled by the client while in flight as failure,
+     * including cancels by zip or firstWithValue short-circuits and client disconnects
+     */
+    private boolean cancelledRequestsAsFailures = false;
+
+    /**
+     * isEnabled.
+     *
+     * @return boolean
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * setEnabled.
+     *
+     * @param enabled enabled
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * getConsecutiveFailures.
+     *
+     * @return consecutive failures
+     */
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * setConsecutiveFailures.
+     *
+     * @param consecutiveFailures consecutive failures
+     */
+    public void setConsecutiveFailures(int consecutiveFailures) {
+        this.consecutiveFailures = consecutiveFailures;
+    }
+
+    /**
+     * getFailureRatio.
+     *
+     * @return failure ratio
+     */
+    public double getFailureRatio() {
+        return failureRatio;
+    }
+
+    /**
+     * setFailureRatio.
+     *
+     * @param failureRatio failure ratio
+     */
+    public void setFailureRatio(double failureRatio) {
+        this.failureRatio = failureRatio;
+    }
+
+    /**
+     * getMinimumRequests.
+     *
+     * @return minimum requests
+     */
+    public int getMinimumRequests() {
+        return minimumRequests;
+    }
+
+    /**
+     * setMinimumRequests.
+     *
+     * @param minimumRequests minimum requests
+     */
+    public void setMinimumRequests(int minimumRequests) {
+        this.minimumRequests = minimumRequests;
+    }
+
+    /**
+     * getInterval.
+     *
+     * @return interval
+     */
+    public Duration getInterval() {
+        return interval;
+    }
+
+    /**
+     * setInterval.
+     *
+     * @param interval interval
+     */
+    public void setInterval(Duration interval) {
+        this.interval = interval;
+    }
+
+    /**
+     * getBaseEjectionTime.
+     *
+     * @return base ejection time
+     */
+    public Duration getBaseEjectionTime() {
+        return baseEjectionTime;
+    }
+
+    /**
+     * setBaseEjectionTime.
+     *
+     * @param baseEjectionTime base ejection time
+     */
+    public void setBaseEjectionTime(Duration baseEjectionTime) {
+        this.baseEjectionTime = baseEjectionTime;
+    }
+
+    /**
+     * getMaxEjectionTime.
+     *
+     * @return max ejection time
+     */
+    public Duration getMaxEjectionTime() {
+        return maxEjectionTime;
+    }
+
+    /**
+     * setMaxEjectionTime.
+     *
+     * @param maxEjectionTime max ejection time
+     */
+    public void setMaxEjectionTime(Duration maxEjectionTime) {
+        this.maxEjectionTime = maxEjectionTime;
+    }
+
+    /**
+     * getFailureErrorCodes.
+     *
+     * @return failure error codes
+     */
+    public Set<Integer> getFailureErrorCodes() {
+        return failureErrorCodes;
+    }
+
+    /**
+     * setFailureErrorCodes.
+     *
+     * @param failureErrorCodes failure error codes
+     */
+    public void setFailureErrorCodes(Set<Integer> failureErrorCodes) {
+        this.failureErrorCodes = failureErrorCodes;
+    }
+
+    /**
+     * isTimeoutsAsFailures.
+     *
+     * @return boolean
+     */
+    public boolean isTimeoutsAsFailures() {
+        return timeoutsAsFailures;
+    }
+
+    /**
+     * setTimeoutsAsFailures.
+     *
+     * @param timeoutsAsFailures timeouts as failures
+     */
+    public void setTimeoutsAsFailures(boolean timeoutsAsFailures) {
+        this.timeoutsAsFailures = timeoutsAsFailures;
+    }
+
+    /**
+     * isCancelledRequestsAsFailures.
+     *
+     * @return boolean
+     */
+    public boolean isCancelledRequestsAsFailures() {
+        return cancelledRequestsAsFailures;
+    }
+
+    /**
+     * setCancelledRequestsAsFailures.
+     *
+     * @param cancelledRequestsAsFailures cancelled requests as failures
+     */
+    public void setCancelledRequestsAsFailures(boolean cancelledRequestsAsFailures) {
+        this.cancelledRequestsAsFailures = cancelledRequestsAsFailures;
+    }
+}
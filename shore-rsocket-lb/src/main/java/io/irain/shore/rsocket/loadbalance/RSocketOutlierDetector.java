@@ -0,0 +1,388 @@
+package io.irain.shore.rsocket.loadbalance;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.rsocket.DuplexConnection;
+import io.rsocket.RSocketErrorException;
+import io.rsocket.frame.ErrorFrameCodec;
+import io.rsocket.frame.FrameHeaderCodec;
+import io.rsocket.frame.FrameType;
+import io.rsocket.frame.RequestResponseFrameCodec;
+import io.rsocket.transport.ClientTransport;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * rsocket outlier detector, passively tracks connect failures, connection errors and request timeouts per instance
+ * and ejects unhealthy instances for an exponential cool-down, followed by half-open probing.
+ * Request timeouts are detected for request/response carrying a deadline, an instance accepting connections
+ * but never answering is only detected when callers set a timeout. Stream error codes and arbitrary cancels are opt-in.
+ * A half-open instance is not limited to a probe, it gets its full round-robin share again and its first outcome decides:
+ * a failure ejects it again for twice the cool-down, a success closes it.
+ * @author youta
+ */
+public class RSocketOutlierDetector {
+    /**
+     * cancels this close to the deadline are timeouts, the deadline is taken when the request frame is sent,
+     * slightly after the caller computed it
+     */
+    private static final long TIMEOUT_TOLERANCE_MILLIS = 10;
+    private final RSocketOutlierDetectionProperties properties;
+    /**
+     * instance uri and health mapping
+     */
+    private final Map<String, InstanceHealth> healths = new ConcurrentHashMap<>();
+    private final Sinks.Many<String> changes = Sinks.many().multicast().directBestEffort();
+
+    /**
+     * Constructor.
+     * @param properties outlier detection properties
+     */
+    public RSocketOutlierDetector(RSocketOutlierDetectionProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Wrap client transport to observe connect failures and request outcomes of the instance.
+     * @param server rsocket server instance
+     * @param transport client transport
+     * @return health tracking client transport
+     */
+    public ClientTransport track(RSocketServerInstance server, ClientTransport transport) {
+        if (!properties.isEnabled()) {
+            return transport;
+        }
+        String key = server.getURI();
+        return new ClientTransport() {
+            @Override
+            public Mono<DuplexConnection> connect() {
+                return transport.connect()
+                        .doOnError(e -> onFailure(key))
+                        .map(connection -> new HealthTrackingDuplexConnection(connection, key));
+            }
+
+            @Override
+            public int maxFrameLength() {
+                return transport.maxFrameLength();
+            }
+        };
+    }
+
+    /**
+     * Filter out ejected instances, all instances are kept if none of them is healthy.
+     * @param servers rsocket server instances
+     * @return available rsocket server instances
+     */
+    public List<RSocketServerInstance> filter(List<RSocketServerInstance> servers) {
+        if (!properties.isEnabled()) {
+            return servers;
+        }
+        List<RSocketServerInstance> available = servers.stream()
+                .filter(server -> !isEjected(server.getURI()))
+                .collect(Collectors.toList());
+        return available.isEmpty() ? servers : available;
+    }
+
+    /**
+     * Instances ejected or restored.
+     * @return uri of changed instances
+     */
+    public Flux<String> changes() {
+        return changes.asFlux();
+    }
+
+    /**
+     * Check whether the instance is ejected.
+     * @param key instance uri
+     * @return true if ejected
+     */
+    public boolean isEjected(String key) {
+        InstanceHealth health = healths.get(key);
+        return health != null && health.ejected;
+    }
+
+    /**
+     * Drop health of instances no longer returned by discovery.
+     * @param servers current rsocket server instances of all services
+     */
+    public void retain(Collection<RSocketServerInstance> servers) {
+        Set<String> keys = servers.stream().map(RSocketServerInstance::getURI).collect(Collectors.toSet());
+        healths.keySet().retainAll(keys);
+    }
+
+    /**
+     * Record a successful request.
+     * @param key instance uri
+     */
+    void onSuccess(String key) {
+        InstanceHealth health = healths.computeIfAbsent(key, k -> new InstanceHealth());
+        synchronized (health) {
+            health.roll(properties.getInterval());
+            health.requests++;
+            health.consecutiveFailures = 0;
+            if (health.halfOpen) {
+                health.halfOpen = false;
+                health.ejections = Math.max(0, health.ejections - 1);
+            }
+        }
+    }
+
+    /**
+     * Record a failed request or connect failure.
+     * @param key instance uri
+     */
+    void onFailure(String key) {
+        InstanceHealth health = healths.computeIfAbsent(key, k -> new InstanceHealth());
+        Duration coolDown;
+        synchronized (health) {
+            if (health.ejected) {
+                return;
+            }
+            health.roll(properties.getInterval());
+            health.requests++;
+            health.failures++;
+            health.consecutiveFailures++;
+            boolean eject = health.halfOpen
+                    || health.consecutiveFailures >= properties.getConsecutiveFailures()
+                    || (health.requests >= properties.getMinimumRequests()
+                    && (double) health.failures / health.requests >= properties.getFailureRatio());
+            if (!eject) {
+                return;
+            }
+            coolDown = properties.getBaseEjectionTime().multipliedBy(1L << Math.min(health.ejections, 30));
+            if (coolDown.compareTo(properties.getMaxEjectionTime()) > 0) {
+                coolDown = properties.getMaxEjectionTime();
+            }
+            health.ejected = true;
+            health.halfOpen = false;
+            health.ejections++;
+            health.reset();
+        }
+        emitChange(key);
+        Mono.delay(coolDown).subscribe(tick -> {
+            synchronized (health) {
+                health.ejected = false;
+                health.halfOpen = true;
+            }
+            emitChange(key);
+        });
+    }
+
+    /**
+     * Emit instance change.
+     * @param key instance uri
+     */
+    private void emitChange(String key) {
+        synchronized (changes) {
+            changes.tryEmitNext(key);
+        }
+    }
+
+    /**
+     * Health of one instance.
+     */
+    private static class InstanceHealth {
+        private int requests;
+        private int failures;
+        private int consecutiveFailures;
+        private long windowStart = System.currentTimeMillis();
+        private int ejections;
+        private volatile boolean ejected;
+        private boolean halfOpen;
+
+        /**
+         * Start a new failure ratio window if the current one elapsed.
+         * @param interval window interval
+         */
+        private void roll(Duration interval) {
+            if (System.currentTimeMillis() - windowStart >= interval.toMillis()) {
+                requests = 0;
+                failures = 0;
+                windowStart = System.currentTimeMillis();
+            }
+        }
+
+        /**
+         * Reset counters.
+         */
+        private void reset() {
+            requests = 0;
+            failures = 0;
+            consecutiveFailures = 0;
+            windowStart = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * In-flight request.
+     */
+    private static class InFlightRequest {
+        private final FrameType frameType;
+        /**
+         * absolute deadline in epoch milliseconds, 0 if absent
+         */
+        private final long deadline;
+
+        /**
+         * Constructor.
+         * @param frameType request frame type
+         * @param deadline absolute deadline in epoch milliseconds, 0 if absent
+         */
+        private InFlightRequest(FrameType frameType, long deadline) {
+            this.frameType = frameType;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Check whether the deadline of the request has passed.
+         * @return true if timed out
+         */
+        private boolean isTimedOut() {
+            return deadline > 0 && System.currentTimeMillis() >= deadline - TIMEOUT_TOLERANCE_MILLIS;
+        }
+    }
+
+    /**
+     * Duplex connection tracking in-flight requests: request/response cancelled by the client after its deadline,
+     * connection-level error frames, the connection closing with requests in flight and stream error frames
+     * with a failure error code are failures, complete frames are successes,
+     * frames of streams no longer in flight (e.g. cancelled) are ignored.
+     */
+    private class HealthTrackingDuplexConnection implements DuplexConnection {
+        private final DuplexConnection delegate;
+        private final String key;
+        /**
+         * stream id and in-flight request mapping
+         */
+        private final Map<Integer, InFlightRequest> inFlight = new ConcurrentHashMap<>();
+
+        /**
+         * Constructor.
+         * @param delegate duplex connection
+         * @param key instance uri
+         */
+        private HealthTrackingDuplexConnection(DuplexConnection delegate, String key) {
+            this.delegate = delegate;
+            this.key = key;
+            // closed by the remote or the network, local dispose clears in-flight requests first
+            delegate.onClose().subscribe(null, e -> onConnectionFailure(), this::onConnectionFailure);
+        }
+
+        @Override
+        public void sendFrame(int streamId, ByteBuf frame) {
+            if (streamId != 0) {
+                FrameType frameType = FrameHeaderCodec.frameType(frame);
+                if (frameType == FrameType.REQUEST_RESPONSE) {
+                    inFlight.put(streamId, new InFlightRequest(frameType, properties.isTimeoutsAsFailures() ? deadline(frame) : 0));
+                } else if (frameType == FrameType.REQUEST_STREAM || frameType == FrameType.REQUEST_CHANNEL) {
+                    inFlight.put(streamId, new InFlightRequest(frameType, 0));
+                } else if (frameType == FrameType.CANCEL) {
+                    InFlightRequest request = inFlight.remove(streamId);
+                    if (request != null && request.frameType == FrameType.REQUEST_RESPONSE
+                            && (properties.isCancelledRequestsAsFailures() || request.isTimedOut())) {
+                        onFailure(key);
+                    }
+                }
+            }
+            delegate.sendFrame(streamId, frame);
+        }
+
+        /**
+         * Read the deadline carried by a request/response frame.
+         * @param frame request/response frame
+         * @return absolute deadline in epoch milliseconds, 0 if absent or unreadable (e.g. fragmented metadata)
+         */
+        private long deadline(ByteBuf frame) {
+            if (!FrameHeaderCodec.hasMetadata(frame)) {
+                return 0;
+            }
+            try {
+                Long deadline = RSocketDeadline.fromMetadata(RequestResponseFrameCodec.metadata(frame));
+                return deadline == null ? 0 : deadline;
+            } catch (RuntimeException e) {
+                return 0;
+            }
+        }
+
+        /**
+         * Record a connection failure if requests were in flight.
+         */
+        private void onConnectionFailure() {
+            if (!inFlight.isEmpty()) {
+                inFlight.clear();
+                onFailure(key);
+            }
+        }
+
+        @Override
+        public void sendErrorAndClose(RSocketErrorException e) {
+            delegate.sendErrorAndClose(e);
+        }
+
+        @Override
+        public Flux<ByteBuf> receive() {
+            return delegate.receive().doOnNext(frame -> {
+                int streamId = FrameHeaderCodec.streamId(frame);
+                FrameType frameType = FrameHeaderCodec.frameType(frame);
+                if (streamId == 0) {
+                    // setup rejected or connection error, a graceful close only counts with requests in flight
+                    if (frameType == FrameType.ERROR && ErrorFrameCodec.errorCode(frame) != ErrorFrameCodec.CONNECTION_CLOSE) {
+                        inFlight.clear();
+                        onFailure(key);
+                    }
+                    return;
+                }
+                if (frameType == FrameType.ERROR) {
+                    if (inFlight.remove(streamId) != null && properties.getFailureErrorCodes().contains(ErrorFrameCodec.errorCode(frame))) {
+                        onFailure(key);
+                    }
+                } else if (frameType == FrameType.NEXT_COMPLETE || frameType == FrameType.COMPLETE) {
+                    if (inFlight.remove(streamId) != null) {
+                        onSuccess(key);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public ByteBufAllocator alloc() {
+            return delegate.alloc();
+        }
+
+        @Override
+        public SocketAddress remoteAddress() {
+            return delegate.remoteAddress();
+        }
+
+        @Override
+        public double availability() {
+            return delegate.availability();
+        }
+
+        @Override
+        public Mono<Void> onClose() {
+            return delegate.onClose();
+        }
+
+        @Override
+        public void dispose() {
+            inFlight.clear();
+            delegate.dispose();
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return delegate.isDisposed();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package io.irain.shore.rsocket.loadbalance;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * rsocket properties.
+ * @author youta
+ */
+@ConfigurationProperties(prefix = "shore.rsocket")
+public class RSocketProperties {
+    /**
+     * decode payloads without copying the pooled netty frame buffers on server and requesters,
+     * handlers receiving ByteBuf or DataBuffer must release them
+     */
+    private boolean zeroCopy = false;
+
+    /**
+     * isZeroCopy.
+     *
+     * @return boolean
+     */
+    public boolean isZeroCopy() {
+        return zeroCopy;
+    }
+
+    /**
+     * setZeroCopy.
+     *
+     * @param zeroCopy zero copy
+     */
+    public void setZeroCopy(boolean zeroCopy) {
+        this.zeroCopy = zeroCopy;
+    }
+}
@@ -0,0 +1,33 @@
+package io.irain.shore.rsocket.loadbalance;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * rsocket registry properties.
+ * @author youta
+ */
+@ConfigurationProperties(prefix = "shore.rsocket.registry")
+public class RSocketRegistryProperties {
+    /**
+     * cbor file persisting last-known server instances for warm start, snapshots are disabled if absent
+     */
+    private String snapshotFile;
+
+    /**
+     * getSnapshotFile.
+     *
+     * @return snapshot file
+     */
+    public String getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    /**
+     * setSnapshotFile.
+     *
+     * @param snapshotFile snapshot file
+     */
+    public void setSnapshotFile(String snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+}
@@ -0,0 +1,72 @@
+package io.irain.shore.rsocket.loadbalance;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * rsocket registry snapshot store, persists last-known server instances to a local cbor file for warm start.
+ * @author youta
+ */
+public class RSocketRegistrySnapshotStore {
+    private static final Log log = LogFactory.getLog(RSocketRegistrySnapshotStore.class);
+    private static final TypeReference<Map<String, List<RSocketServerInstance>>> SNAPSHOTS_TYPE = new TypeReference<>() {
+    };
+    private final Path file;
+    private final ObjectMapper objectMapper = CBORMapper.builder()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    /**
+     * Constructor.
+     * @param file snapshot file
+     */
+    public RSocketRegistrySnapshotStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Load snapshots.
+     * @return appName and server instance list mapping, empty if the file is absent or unreadable
+     */
+    public Map<String, List<RSocketServerInstance>> load() {
+        if (!Files.exists(file)) {
+            return new HashMap<>();
+        }
+        try {
+            return objectMapper.readValue(file.toFile(), SNAPSHOTS_TYPE);
+        } catch (IOException e) {
+            log.warn("Failed to load rsocket registry snapshot " + file + ", starting cold", e);
+            return new HashMap<>();
+        }
+    }
+
+    /**
+     * Save snapshots, the file is replaced atomically.
+     * @param snapshots appName and server instance list mapping
+     */
+    public synchronized void save(Map<String, List<RSocketServerInstance>> snapshots) {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            objectMapper.writeValue(temp.toFile(), snapshots);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to save rsocket registry snapshot " + file, e);
+        }
+    }
+}
@@ -1,10 +1,9 @@
 package io.irain.shore.rsocket.loadbalance;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.rsocket.transport.ClientTransport;
-import io.rsocket.transport.netty.client.TcpClientTransport;
-import io.rsocket.transport.netty.client.WebsocketClientTransport;
 
-import java.net.URI;
+import java.util.Objects;
 
 /**
  * RSocketServerInstance.
@@ -15,11 +14,11 @@ public class RSocketServerInstance {
     private String host;
     private int port;
     /**
-     * schema, such as tcp, ws, wss
+     * schema, such as tcp, ws, wss, unix
      */
     private String schema = "tcp";
     /**
-     * path, for websocket only
+     * path, websocket path or unix domain socket file
      */
     private String path;
 
@@ -117,18 +116,32 @@ public class RSocketServerInstance {
      *
      * @return boolean
      */
+    @JsonIgnore
     public boolean isWebSocket() {
         return "ws".equals(this.schema) || "wss".equals(this.schema);
     }
 
+    /**
+     * isUnixDomainSocket.
+     *
+     * @return boolean
+     */
+    @JsonIgnore
+    public boolean isUnixDomainSocket() {
+        return "unix".equals(this.schema);
+    }
+
     /**
      * getURI.
      *
      * @return URI
      */
+    @JsonIgnore
     public String getURI() {
         if (isWebSocket()) {
             return schema + "://" + host + ":" + port + path;
+        } else if (isUnixDomainSocket()) {
+            return schema + "://" + path;
         } else {
             return schema + "://" + host + ":" + port;
         }
@@ -140,10 +153,17 @@ public class RSocketServerInstance {
      * @return ClientTransport
      */
     public ClientTransport constructClientTransport() {
-        if (this.isWebSocket()) {
-            return WebsocketClientTransport.create(URI.create(getURI()));
-        }
-        return TcpClientTransport.create(host, port);
+        return constructClientTransport(new RSocketClientTransportFactory());
+    }
+
+    /**
+     * getClientTransport.
+     *
+     * @param transportFactory client transport factory
+     * @return ClientTransport
+     */
+    public ClientTransport constructClientTransport(RSocketClientTransportFactory transportFactory) {
+        return transportFactory.create(this);
     }
 
     /**
@@ -157,7 +177,9 @@ public class RSocketServerInstance {
         if (o == null || getClass() != o.getClass()) return false;
         RSocketServerInstance that = (RSocketServerInstance) o;
         if (port != that.port) return false;
-        return host.equals(that.host);
+        if (!Objects.equals(host, that.host)) return false;
+        if (!Objects.equals(schema, that.schema)) return false;
+        return Objects.equals(path, that.path);
     }
 
     /**
@@ -167,8 +189,10 @@ public class RSocketServerInstance {
      */
     @Override
     public int hashCode() {
-        int result = host.hashCode();
+        int result = Objects.hashCode(host);
         result = 31 * result + port;
+        result = 31 * result + Objects.hashCode(schema);
+        result = 31 * result + Objects.hashCode(path);
         return result;
     }
 
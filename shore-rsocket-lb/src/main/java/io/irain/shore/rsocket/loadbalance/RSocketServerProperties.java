@@ -0,0 +1,33 @@
+package io.irain.shore.rsocket.loadbalance;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * rsocket server properties.
+ * @author youta
+ */
+@ConfigurationProperties(prefix = "shore.rsocket.server")
+public class RSocketServerProperties {
+    /**
+     * unix domain socket file to serve co-located clients on, advertise it with the rsocketUnixPath metadata
+     */
+    private String unixPath;
+
+    /**
+     * getUnixPath.
+     *
+     * @return unix path
+     */
+    public String getUnixPath() {
+        return unixPath;
+    }
+
+    /**
+     * setUnixPath.
+     *
+     * @param unixPath unix path
+     */
+    public void setUnixPath(String unixPath) {
+        this.unixPath = unixPath;
+    }
+}
@@ -1,16 +1,25 @@
 package io.irain.shore.rsocket.loadbalance;
 
+import io.netty.channel.epoll.Epoll;
 import io.rsocket.loadbalance.LoadbalanceTarget;
 import io.rsocket.loadbalance.RoundRobinLoadbalanceStrategy;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
 import org.springframework.messaging.rsocket.RSocketRequester;
 import org.springframework.scheduling.annotation.Scheduled;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
+import java.net.InetAddress;
+import java.net.NetworkInterface;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -18,13 +27,37 @@ import java.util.stream.Collectors;
  * @author youta
  */
 public class RSocketServiceDiscoveryRegistry implements RSocketServiceRegistry {
+    private static final Log log = LogFactory.getLog(RSocketServiceDiscoveryRegistry.class);
+    /**
+     * ipv4 or ipv6 literal
+     */
+    private static final Pattern IP_LITERAL = Pattern.compile("[0-9.]+|\\[?[0-9a-fA-F:.%\\w]*:[0-9a-fA-F:.%\\w]*]?");
     /**
      * appName and server instance list mapping
      */
     private final Map<String, Sinks.Many<List<RSocketServerInstance>>> service2Servers = new ConcurrentHashMap<>();
 
-    private final Map<String, List<RSocketServerInstance>> snapshots = new HashMap<>();
+    private final Map<String, List<RSocketServerInstance>> snapshots = new ConcurrentHashMap<>();
+    /**
+     * addresses of the local network interfaces, enumerated once
+     */
+    private final Set<InetAddress> localAddresses = localAddresses();
     private final ReactiveDiscoveryClient discoveryClient;
+    private final RSocketClientTransportFactory transportFactory;
+    private final RSocketOutlierDetector outlierDetector;
+    private final RSocketRegistrySnapshotStore snapshotStore;
+    /**
+     * appName and server instance list mapping loaded from snapshot store
+     */
+    private final Map<String, List<RSocketServerInstance>> persistedSnapshots;
+    /**
+     * snapshots changed since the last save
+     */
+    private final AtomicBoolean snapshotsDirty = new AtomicBoolean();
+    /**
+     * dedicated thread saving snapshots, file io must not block shared schedulers
+     */
+    private final Scheduler snapshotScheduler;
     private Date lastRefreshTimeStamp = new Date();
     private boolean refreshing = false;
 
@@ -33,7 +66,47 @@ public class RSocketServiceDiscoveryRegistry implements RSocketServiceRegistry {
      * @param discoveryClient discovery client
      */
     public RSocketServiceDiscoveryRegistry(ReactiveDiscoveryClient discoveryClient) {
+        this(discoveryClient, new RSocketClientTransportFactory(), new RSocketOutlierDetector(new RSocketOutlierDetectionProperties()));
+    }
+
+    /**
+     * Constructor.
+     * @param discoveryClient discovery client
+     * @param transportFactory client transport factory
+     * @param outlierDetector outlier detector
+     */
+    public RSocketServiceDiscoveryRegistry(ReactiveDiscoveryClient discoveryClient, RSocketClientTransportFactory transportFactory,
+                                           RSocketOutlierDetector outlierDetector) {
+        this(discoveryClient, transportFactory, outlierDetector, null);
+    }
+
+    /**
+     * Constructor.
+     * @param discoveryClient discovery client
+     * @param transportFactory client transport factory
+     * @param outlierDetector outlier detector
+     * @param snapshotStore snapshot store, nullable
+     */
+    public RSocketServiceDiscoveryRegistry(ReactiveDiscoveryClient discoveryClient, RSocketClientTransportFactory transportFactory,
+                                           RSocketOutlierDetector outlierDetector, RSocketRegistrySnapshotStore snapshotStore) {
         this.discoveryClient = discoveryClient;
+        this.transportFactory = transportFactory;
+        this.outlierDetector = outlierDetector;
+        this.snapshotStore = snapshotStore;
+        this.persistedSnapshots = snapshotStore == null ? new HashMap<>() : snapshotStore.load();
+        this.snapshotScheduler = snapshotStore == null ? null : Schedulers.newSingle("shore-rsocket-snapshot", true);
+    }
+
+    /**
+     * Stop saving snapshots, changes not saved yet are written on the calling thread.
+     */
+    public void dispose() {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.dispose();
+            if (snapshotsDirty.compareAndSet(true, false)) {
+                save();
+            }
+        }
     }
 
     /**
@@ -92,9 +165,43 @@ public class RSocketServiceDiscoveryRegistry implements RSocketServiceRegistry {
         if (service2Servers.containsKey(appName)) {
             this.service2Servers.get(appName).tryEmitNext(servers);
             this.snapshots.put(appName, servers);
+            outlierDetector.retain(allServers());
+            persist();
         }
     }
 
+    /**
+     * Get server instances of all services.
+     * @return rsocket server instances
+     */
+    private List<RSocketServerInstance> allServers() {
+        return snapshots.values().stream().flatMap(List::stream).collect(Collectors.toList());
+    }
+
+    /**
+     * Persist snapshots in background, services not requested in this run are kept.
+     * saves run one at a time on the snapshot scheduler and always write the latest snapshots,
+     * changes made while a save is pending are coalesced into it.
+     */
+    private void persist() {
+        if (snapshotStore != null && !snapshotScheduler.isDisposed() && snapshotsDirty.compareAndSet(false, true)) {
+            snapshotScheduler.schedule(() -> {
+                if (snapshotsDirty.compareAndSet(true, false)) {
+                    save();
+                }
+            });
+        }
+    }
+
+    /**
+     * Save the latest snapshots.
+     */
+    private void save() {
+        Map<String, List<RSocketServerInstance>> persisting = new HashMap<>(persistedSnapshots);
+        persisting.putAll(snapshots);
+        snapshotStore.save(persisting);
+    }
+
     /**
      * build load balance rsocket.
      * @param serviceName service name
@@ -115,28 +222,57 @@ public class RSocketServiceDiscoveryRegistry implements RSocketServiceRegistry {
         final String appName = convertToAppName(serviceName);
         if (!service2Servers.containsKey(appName)) {
             service2Servers.put(appName, Sinks.many().replay().latest());
+            List<RSocketServerInstance> persisted = persistedSnapshots.get(appName);
+            if (persisted != null && !persisted.isEmpty()) {
+                // warm start from persisted instances, reconcile once live discovery data arrives
+                snapshots.put(appName, persisted);
+                service2Servers.get(appName).tryEmitNext(persisted);
+                discoveryClient.getInstances(appName)
+                        .map(this::convertToRSocketServerInstance)
+                        .collectList()
+                        .filter(rSocketServerInstances -> !rSocketServerInstances.isEmpty())
+                        .subscribe(rSocketServerInstances -> {
+                            if (!(persisted.size() == rSocketServerInstances.size() && new HashSet<>(persisted).containsAll(rSocketServerInstances))) {
+                                setServers(appName, rSocketServerInstances);
+                            }
+                        }, e -> log.warn("Failed to discover instances of " + appName + ", keep routing on persisted instances", e));
+                return withOutlierEjection(service2Servers.get(appName).asFlux());
+            }
             return Flux.from(discoveryClient.getInstances(appName)
                     .map(this::convertToRSocketServerInstance)
                     .collectList()
                     .doOnNext(rSocketServerInstances -> {
                         snapshots.put(appName, rSocketServerInstances);
                         service2Servers.get(appName).tryEmitNext(rSocketServerInstances);
+                        outlierDetector.retain(allServers());
+                        persist();
                     }))
-                    .thenMany(service2Servers.get(appName).asFlux().map(this::toLoadBalanceTarget));
+                    .thenMany(withOutlierEjection(service2Servers.get(appName).asFlux()));
         }
-        return service2Servers.get(appName)
-                .asFlux()
+        return withOutlierEjection(service2Servers.get(appName).asFlux());
+    }
+
+    /**
+     * Re-evaluate server instances on every ejection or restore, independent of discovery refresh.
+     * @param servers rsocket server instances
+     * @return load balance targets without ejected instances
+     */
+    private Flux<List<LoadbalanceTarget>> withOutlierEjection(Flux<List<RSocketServerInstance>> servers) {
+        return Flux.combineLatest(servers, outlierDetector.changes().startWith(""), (rSocketServers, changed) -> rSocketServers)
+                .map(outlierDetector::filter)
+                .distinctUntilChanged()
                 .map(this::toLoadBalanceTarget);
     }
 
     /**
-     * Convert to load balance target.
+     * Convert to load balance target, keyed by uri so that a schema or path change opens a new connection.
      * @param rSocketServers rsocket server instances
      * @return load balance target
      */
     private List<LoadbalanceTarget> toLoadBalanceTarget(List<RSocketServerInstance> rSocketServers) {
         return rSocketServers.stream()
-                .map(server -> LoadbalanceTarget.from(server.getHost() + server.getPort(), server.constructClientTransport()))
+                .map(server -> LoadbalanceTarget.from(server.getURI(),
+                        outlierDetector.track(server, server.constructClientTransport(transportFactory))))
                 .collect(Collectors.toList());
     }
 
@@ -175,8 +311,51 @@ public class RSocketServiceDiscoveryRegistry implements RSocketServiceRegistry {
             serverInstance.setPath(serviceInstance.getMetadata().getOrDefault("rsocketPath", "/rsocket"));
         } else {
             serverInstance.setPort(Integer.parseInt(serviceInstance.getMetadata().getOrDefault("rsocketPort", "42252")));
+            String unixPath = serviceInstance.getMetadata().get("rsocketUnixPath");
+            // co-located instance: prefer unix domain socket over loopback tcp
+            if (unixPath != null && Epoll.isAvailable() && isLocalHost(serviceInstance.getHost())) {
+                serverInstance.setSchema("unix");
+                serverInstance.setPath(unixPath);
+            } else if (serverInstance.isUnixDomainSocket()) {
+                serverInstance.setSchema("tcp");
+            }
         }
         return serverInstance;
     }
 
+    /**
+     * Check whether the host is the local machine, only literal addresses are compared so no lookup blocks the caller.
+     * @param host host
+     * @return true if the host is a local address
+     */
+    boolean isLocalHost(String host) {
+        if ("localhost".equalsIgnoreCase(host)) {
+            return true;
+        }
+        if (!IP_LITERAL.matcher(host).matches()) {
+            return false;
+        }
+        try {
+            // literal address, parsed without name resolution
+            InetAddress address = InetAddress.getByName(host);
+            return address.isLoopbackAddress() || address.isAnyLocalAddress() || localAddresses.contains(address);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Enumerate addresses of the local network interfaces.
+     * @return local addresses
+     */
+    private static Set<InetAddress> localAddresses() {
+        try {
+            return NetworkInterface.networkInterfaces()
+                    .flatMap(NetworkInterface::inetAddresses)
+                    .collect(Collectors.toSet());
+        } catch (Exception e) {
+            return Collections.emptySet();
+        }
+    }
+
 }
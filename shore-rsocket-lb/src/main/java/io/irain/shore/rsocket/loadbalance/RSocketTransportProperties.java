@@ -0,0 +1,213 @@
+package io.irain.shore.rsocket.loadbalance;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+
+/**
+ * rsocket client transport properties.
+ * @author youta
+ */
+@ConfigurationProperties(prefix = "shore.rsocket.transport")
+public class RSocketTransportProperties {
+    /**
+     * use native transport (io_uring when on classpath, otherwise epoll/kqueue) if available
+     */
+    private boolean preferNative = true;
+    /**
+     * selector thread count, 0 or less to share worker threads
+     */
+    private int selectCount = LoopResources.DEFAULT_IO_SELECT_COUNT;
+    /**
+     * worker thread count
+     */
+    private int workerCount = LoopResources.DEFAULT_IO_WORKER_COUNT;
+    /**
+     * max connections per remote address
+     */
+    private int maxConnections = ConnectionProvider.DEFAULT_POOL_MAX_CONNECTIONS;
+    /**
+     * TCP_NODELAY
+     */
+    private boolean tcpNoDelay = true;
+    /**
+     * SO_SNDBUF, null to use the os default
+     */
+    private Integer sendBufferSize;
+    /**
+     * SO_RCVBUF, null to use the os default
+     */
+    private Integer receiveBufferSize;
+    /**
+     * connect timeout
+     */
+    private Duration connectTimeout = Duration.ofSeconds(3);
+    /**
+     * use pooled byte buf allocator
+     */
+    private boolean pooledAllocator = true;
+
+    /**
+     * isPreferNative.
+     *
+     * @return boolean
+     */
+    public boolean isPreferNative() {
+        return preferNative;
+    }
+
+    /**
+     * setPreferNative.
+     *
+     * @param preferNative prefer native
+     */
+    public void setPreferNative(boolean preferNative) {
+        this.preferNative = preferNative;
+    }
+
+    /**
+     * getSelectCount.
+     *
+     * @return select count
+     */
+    public int getSelectCount() {
+        return selectCount;
+    }
+
+    /**
+     * setSelectCount.
+     *
+     * @param selectCount select count
+     */
+    public void setSelectCount(int selectCount) {
+        this.selectCount = selectCount;
+    }
+
+    /**
+     * getWorkerCount.
+     *
+     * @return worker count
+     */
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    /**
+     * setWorkerCount.
+     *
+     * @param workerCount worker count
+     */
+    public void setWorkerCount(int workerCount) {
+        this.workerCount = workerCount;
+    }
+
+    /**
+     * getMaxConnections.
+     *
+     * @return max connections
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * setMaxConnections.
+     *
+     * @param maxConnections max connections
+     */
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * isTcpNoDelay.
+     *
+     * @return boolean
+     */
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    /**
+     * setTcpNoDelay.
+     *
+     * @param tcpNoDelay tcp no delay
+     */
+    public void setTcpNoDelay(boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+    }
+
+    /**
+     * getSendBufferSize.
+     *
+     * @return send buffer size
+     */
+    public Integer getSendBufferSize() {
+        return sendBufferSize;
+    }
+
+    /**
+     * setSendBufferSize.
+     *
+     * @param sendBufferSize send buffer size
+     */
+    public void setSendBufferSize(Integer sendBufferSize) {
+        this.sendBufferSize = sendBufferSize;
+    }
+
+    /**
+     * getReceiveBufferSize.
+     *
+     * @return receive buffer size
+     */
+    public Integer getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    /**
+     * setReceiveBufferSize.
+     *
+     * @param receiveBufferSize receive buffer size
+     */
+    public void setReceiveBufferSize(Integer receiveBufferSize) {
+        this.receiveBufferSize = receiveBufferSize;
+    }
+
+    /**
+     * getConnectTimeout.
+     *
+     * @return connect timeout
+     */
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * setConnectTimeout.
+     *
+     * @param connectTimeout connect timeout
+     */
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * isPooledAllocator.
+     *
+     * @return boolean
+     */
+    public boolean isPooledAllocator() {
+        return pooledAllocator;
+    }
+
+    /**
+     * setPooledAllocator.
+     *
+     * @param pooledAllocator pooled allocator
+     */
+    public void setPooledAllocator(boolean pooledAllocator) {
+        this.pooledAllocator = pooledAllocator;
+    }
+}
@@ -0,0 +1,103 @@
+package io.irain.shore.rsocket.loadbalance;
+
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.rsocket.core.RSocketServer;
+import io.rsocket.transport.netty.server.CloseableChannel;
+import io.rsocket.transport.netty.server.TcpServerTransport;
+import org.springframework.boot.rsocket.server.RSocketServerCustomizer;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import reactor.netty.resources.LoopResources;
+import reactor.netty.tcp.TcpServer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+
+/**
+ * rsocket server listening on a unix domain socket, for co-located clients.
+ * @author youta
+ */
+public class RSocketUnixDomainSocketServer implements SmartLifecycle {
+    private final String path;
+    private final RSocketMessageHandler messageHandler;
+    private final List<RSocketServerCustomizer> customizers;
+    private final LoopResources loopResources;
+    private CloseableChannel channel;
+
+    /**
+     * Constructor.
+     * @param path unix domain socket file
+     * @param messageHandler rsocket message handler
+     * @param customizers rsocket server customizers
+     * @param loopResources loop resources
+     */
+    public RSocketUnixDomainSocketServer(String path, RSocketMessageHandler messageHandler, List<RSocketServerCustomizer> customizers,
+                                         LoopResources loopResources) {
+        this.path = path;
+        this.messageHandler = messageHandler;
+        this.customizers = customizers;
+        this.loopResources = loopResources;
+    }
+
+    /**
+     * Bind the server to the unix domain socket.
+     */
+    @Override
+    public void start() {
+        if (!Epoll.isAvailable()) {
+            throw new IllegalStateException("unix domain socket requires native epoll transport", Epoll.unavailabilityCause());
+        }
+        removeStaleSocket();
+        RSocketServer server = RSocketServer.create(messageHandler.responder());
+        customizers.forEach(customizer -> customizer.customize(server));
+        this.channel = server
+                .bind(TcpServerTransport.create(TcpServer.create().runOn(loopResources).bindAddress(() -> new DomainSocketAddress(path))))
+                .block();
+    }
+
+    /**
+     * Remove the socket file left by a previous process, any other file at the path is kept and fails the start.
+     */
+    private void removeStaleSocket() {
+        Path socket = Paths.get(path);
+        if (!Files.exists(socket, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        try {
+            // sockets are neither regular files, directories nor links
+            if (!Files.readAttributes(socket, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther()) {
+                throw new IllegalStateException("unix domain socket path " + path + " exists and is not a socket");
+            }
+            Files.delete(socket);
+        } catch (IOException e) {
+            throw new IllegalStateException("failed to remove stale unix domain socket " + path, e);
+        }
+    }
+
+    /**
+     * Close the server.
+     */
+    @Override
+    public void stop() {
+        if (this.channel != null) {
+            this.channel.dispose();
+            this.channel.onClose().block();
+            this.channel = null;
+        }
+    }
+
+    /**
+     * isRunning.
+     * @return boolean
+     */
+    @Override
+    public boolean isRunning() {
+        return this.channel != null && !this.channel.isDisposed();
+    }
+}
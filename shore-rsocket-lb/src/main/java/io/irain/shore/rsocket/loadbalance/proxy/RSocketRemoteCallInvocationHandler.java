@@ -1,14 +1,22 @@
 package io.irain.shore.rsocket.loadbalance.proxy;
 
+import io.irain.shore.rsocket.common.annotations.RSocketTimeout;
+import io.irain.shore.rsocket.loadbalance.RSocketDeadline;
 import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static io.irain.shore.rsocket.common.constants.RSocketConstants.DEADLINE_MIME_TYPE;
 
 /**
  * rSocket remote call invocation handler.
@@ -18,7 +26,9 @@ public class RSocketRemoteCallInvocationHandler implements InvocationHandler {
     private final RSocketRequester rsocketRequester;
     private final Class<?> serviceInterface;
     private final String serviceName;
-    private static final  Map<Method, Class<?>> methodReturnTypeMap = new HashMap<>();
+    private static final Map<Method, Class<?>> methodReturnTypeMap = new ConcurrentHashMap<>();
+    private static final Map<Method, Long> methodTimeoutMap = new ConcurrentHashMap<>();
+    private static final MimeType deadlineMimeType = MimeTypeUtils.parseMimeType(DEADLINE_MIME_TYPE);
 
     /**
      * Constructor.
@@ -62,29 +72,77 @@ public class RSocketRemoteCallInvocationHandler implements InvocationHandler {
         if (args != null && args.length > 0) {
             arg = args[0];
         }
-        Class<?> returnType = methodReturnTypeMap.get(method);
-        if (returnType == null) {
-            returnType = parseInferredClass(method.getGenericReturnType());
-            methodReturnTypeMap.put(method, returnType);
-        }
-        RSocketRequester.RequestSpec requestSpec = rsocketRequester.route(serviceName + "." + methodName);
-        RSocketRequester.RetrieveSpec retrieveSpec;
-        if (arg != null) {
-            retrieveSpec = requestSpec.data(arg);
-        } else {
-            retrieveSpec = requestSpec;
-        }
+        Class<?> returnType = methodReturnTypeMap.computeIfAbsent(method, key -> parseInferredClass(key.getGenericReturnType()));
+        long timeout = methodTimeoutMap.computeIfAbsent(method, RSocketRemoteCallInvocationHandler::parseTimeout);
+        final String route = serviceName + "." + methodName;
+        final Object data = arg;
+        final Class<?> dataType = returnType;
+        final long methodTimeout = timeout;
         // Flux return type: request/stream or channel
         if (method.getReturnType().isAssignableFrom(Flux.class)) {
-            return retrieveSpec.retrieveFlux(returnType);
+            return Flux.deferContextual(context -> retrieveSpec(route, data, deadline(context, methodTimeout)).retrieveFlux(dataType));
         } else { //Mono return type
-            // Void return type: fireAndForget
-            if (returnType.equals(Void.class)) {
-                return retrieveSpec.send();
-            } else { // request/response
-                return requestSpec.retrieveMono(returnType);
+            return Mono.deferContextual(context -> {
+                Long deadline = deadline(context, methodTimeout);
+                RSocketRequester.RetrieveSpec retrieveSpec = retrieveSpec(route, data, deadline);
+                Mono<?> result;
+                // Void return type: fireAndForget
+                if (dataType.equals(Void.class)) {
+                    result = retrieveSpec.send();
+                } else { // request/response
+                    result = retrieveSpec.retrieveMono(dataType);
+                }
+                return deadline == null ? result : result.timeout(RSocketDeadline.remaining(deadline));
+            });
+        }
+    }
+
+    /**
+     * Build retrieve spec, with the remaining time until the deadline as metadata if present.
+     * @param route route
+     * @param data data
+     * @param deadline absolute deadline in epoch milliseconds, nullable
+     * @return retrieve spec
+     */
+    private RSocketRequester.RetrieveSpec retrieveSpec(String route, Object data, Long deadline) {
+        RSocketRequester.RequestSpec requestSpec = rsocketRequester.route(route);
+        if (deadline != null) {
+            requestSpec = requestSpec.metadata(String.valueOf(RSocketDeadline.remaining(deadline).toMillis()), deadlineMimeType);
+        }
+        if (data != null) {
+            return requestSpec.data(data);
+        }
+        return requestSpec;
+    }
+
+    /**
+     * Resolve deadline: the earlier of the inherited deadline and the method timeout.
+     * @param context reactor context
+     * @param timeout method timeout in milliseconds, 0 if absent
+     * @return absolute deadline in epoch milliseconds, null if absent
+     */
+    private static Long deadline(ContextView context, long timeout) {
+        Long deadline = RSocketDeadline.get(context);
+        if (timeout > 0) {
+            long methodDeadline = System.currentTimeMillis() + timeout;
+            if (deadline == null || methodDeadline < deadline) {
+                deadline = methodDeadline;
             }
         }
+        return deadline;
+    }
+
+    /**
+     * Parse timeout from method or service interface annotation.
+     * @param method method
+     * @return timeout in milliseconds, 0 if absent
+     */
+    private static long parseTimeout(Method method) {
+        RSocketTimeout rsocketTimeout = method.getAnnotation(RSocketTimeout.class);
+        if (rsocketTimeout == null) {
+            rsocketTimeout = method.getDeclaringClass().getAnnotation(RSocketTimeout.class);
+        }
+        return rsocketTimeout == null ? 0 : rsocketTimeout.value();
     }
 
     /**
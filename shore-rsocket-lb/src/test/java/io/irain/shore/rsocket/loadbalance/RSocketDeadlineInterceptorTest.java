@@ -0,0 +1,269 @@
+package io.irain.shore.rsocket.loadbalance;
+
+import io.irain.shore.rsocket.common.annotations.RSocketHandler;
+import io.irain.shore.rsocket.common.annotations.RSocketTimeout;
+import io.irain.shore.rsocket.common.annotations.SpringRSocketService;
+import io.irain.shore.rsocket.loadbalance.proxy.RSocketRemoteServiceBuilder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.core.DefaultConnectionSetupPayload;
+import io.rsocket.core.RSocketServer;
+import io.rsocket.exceptions.InvalidException;
+import io.rsocket.exceptions.RejectedException;
+import io.rsocket.frame.SetupFrameCodec;
+import io.rsocket.metadata.CompositeMetadataCodec;
+import io.rsocket.metadata.WellKnownMimeType;
+import io.rsocket.transport.netty.server.CloseableChannel;
+import io.rsocket.transport.netty.server.TcpServerTransport;
+import io.rsocket.util.ByteBufPayload;
+import io.rsocket.util.DefaultPayload;
+import io.rsocket.util.EmptyPayload;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.discovery.simple.reactive.SimpleReactiveDiscoveryClient;
+import org.springframework.cloud.client.discovery.simple.reactive.SimpleReactiveDiscoveryProperties;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.irain.shore.rsocket.common.constants.RSocketConstants.DEADLINE_MIME_TYPE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * rsocket deadline interceptor tests.
+ * @author youta
+ */
+class RSocketDeadlineInterceptorTest {
+    private static final String SERVICE_NAME = "deadline";
+
+    private final AtomicInteger invocations = new AtomicInteger();
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private RSocket responder;
+
+    @BeforeEach
+    void setUp() {
+        RSocket handler = new RSocket() {
+            @Override
+            public Mono<Void> fireAndForget(Payload payload) {
+                invocations.incrementAndGet();
+                payload.release();
+                return Mono.empty();
+            }
+
+            @Override
+            public Mono<Payload> requestResponse(Payload payload) {
+                invocations.incrementAndGet();
+                boolean slow = "slow".equals(payload.getDataUtf8());
+                payload.release();
+                return slow ? Mono.never() : deadline();
+            }
+
+            @Override
+            public Flux<Payload> requestStream(Payload payload) {
+                invocations.incrementAndGet();
+                payload.release();
+                return deadline().flux();
+            }
+
+            @Override
+            public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
+                invocations.incrementAndGet();
+                return Flux.from(payloads)
+                        .doOnNext(payload -> {
+                            received.add(payload.getDataUtf8());
+                            payload.release();
+                        })
+                        .thenMany(deadline());
+            }
+        };
+        DefaultConnectionSetupPayload setup = new DefaultConnectionSetupPayload(SetupFrameCodec.encode(ByteBufAllocator.DEFAULT, false,
+                1000, 10000, WellKnownMimeType.MESSAGE_RSOCKET_COMPOSITE_METADATA.getString(), "application/cbor", EmptyPayload.INSTANCE));
+        responder = new RSocketDeadlineInterceptor()
+                .apply((connectionSetup, sendingSocket) -> Mono.just(handler))
+                .accept(setup, new RSocket() {
+                })
+                .block();
+    }
+
+    @Test
+    void expiredRequestIsRejectedAndReleased() {
+        Payload requestResponse = payload("0");
+        assertThatThrownBy(() -> responder.requestResponse(requestResponse).block())
+                .isInstanceOf(RejectedException.class);
+        assertThat(requestResponse.refCnt()).isZero();
+
+        Payload requestStream = payload("0");
+        assertThatThrownBy(() -> responder.requestStream(requestStream).blockLast())
+                .isInstanceOf(RejectedException.class);
+        assertThat(requestStream.refCnt()).isZero();
+
+        Payload fireAndForget = payload("0");
+        responder.fireAndForget(fireAndForget).block();
+        assertThat(fireAndForget.refCnt()).isZero();
+
+        assertThat(invocations).hasValue(0);
+    }
+
+    @Test
+    void malformedDeadlineIsInvalidAndReleased() {
+        for (String remaining : List.of("soon", "-1", "")) {
+            Payload payload = payload(remaining);
+            assertThatThrownBy(() -> responder.requestResponse(payload).block())
+                    .isInstanceOf(InvalidException.class);
+            assertThat(payload.refCnt()).isZero();
+        }
+        assertThat(invocations).hasValue(0);
+    }
+
+    @Test
+    void remainingTimeBecomesLocalDeadline() {
+        long before = System.currentTimeMillis();
+        long deadline = Long.parseLong(responder.requestResponse(payload("5000")).block().getDataUtf8());
+        assertThat(deadline).isBetween(before + 5000, System.currentTimeMillis() + 5000);
+        assertThat(responder.requestStream(payload("5000")).blockLast().getDataUtf8()).isNotEmpty();
+    }
+
+    @Test
+    void requestWithoutDeadlinePassesThrough() {
+        Payload payload = ByteBufPayload.create(Unpooled.copiedBuffer("x", StandardCharsets.UTF_8), Unpooled.EMPTY_BUFFER);
+        assertThat(responder.requestResponse(payload).block().getDataUtf8()).isEmpty();
+        assertThat(invocations).hasValue(1);
+    }
+
+    @Test
+    void requestResponseIsCancelledAtDeadline() {
+        assertThatThrownBy(() -> responder.requestResponse(payload("100", "slow")).block(Duration.ofSeconds(5)))
+                .hasCauseInstanceOf(TimeoutException.class);
+    }
+
+    @Test
+    void channelDeadlineIsReadFromFirstPayload() {
+        long before = System.currentTimeMillis();
+        Payload first = payload("5000", "first");
+        Payload second = payload("5000", "second");
+        long deadline = Long.parseLong(responder.requestChannel(Flux.just(first, second)).blockLast().getDataUtf8());
+
+        assertThat(deadline).isBetween(before + 5000, System.currentTimeMillis() + 5000);
+        assertThat(received).containsExactly("first", "second");
+        assertThat(first.refCnt()).isZero();
+        assertThat(second.refCnt()).isZero();
+    }
+
+    @Test
+    void expiredChannelIsRejectedAndFirstPayloadReleased() {
+        Payload first = payload("0", "first");
+        assertThatThrownBy(() -> responder.requestChannel(Flux.just(first)).blockLast())
+                .isInstanceOf(RejectedException.class);
+        assertThat(first.refCnt()).isZero();
+        assertThat(invocations).hasValue(0);
+    }
+
+    @Test
+    void handlerSeesDeadlineThroughProxy() {
+        RSocketStrategies strategies = new RSocketLoadBalanceConfiguration().rSocketStrategies();
+        RSocketServer rsocketServer = RSocketServer.create(RSocketMessageHandler.responder(strategies, new DeadlineHandler()));
+        new RSocketLoadBalanceConfiguration().rsocketDeadlineServerCustomizer().customize(rsocketServer);
+        CloseableChannel server = rsocketServer.bind(TcpServerTransport.create("127.0.0.1", 0)).block();
+        int port = server.address().getPort();
+        SimpleReactiveDiscoveryProperties properties = new SimpleReactiveDiscoveryProperties();
+        properties.setInstances(Map.of(SERVICE_NAME, List.of(new DefaultServiceInstance("deadline-1", SERVICE_NAME,
+                "127.0.0.1", port, false, Map.of("rsocketPort", String.valueOf(port))))));
+        RSocketRequester requester = new RSocketServiceDiscoveryRegistry(new SimpleReactiveDiscoveryClient(properties))
+                .buildLoadBalanceRSocket(SERVICE_NAME, RSocketRequester.builder().rsocketStrategies(strategies));
+        try {
+            DeadlineService service = new RSocketRemoteServiceBuilder<DeadlineService>()
+                    .serviceName(SERVICE_NAME)
+                    .serviceInterface(DeadlineService.class)
+                    .rsocketRequester(requester)
+                    .build();
+            assertThat(service.remaining().block()).isPositive().isLessThanOrEqualTo(3000);
+            assertThat(service.header().block()).isPositive().isLessThanOrEqualTo(3000);
+        } finally {
+            requester.dispose();
+            server.dispose();
+        }
+    }
+
+    /**
+     * deadline service.
+     */
+    @RSocketTimeout(3000)
+    public interface DeadlineService {
+        /**
+         * remaining time seen by the handler.
+         * @return remaining milliseconds
+         */
+        Mono<Long> remaining();
+
+        /**
+         * remaining time of the deadline header seen by the handler.
+         * @return remaining milliseconds
+         */
+        Mono<Long> header();
+    }
+
+    /**
+     * deadline service handler.
+     */
+    @SpringRSocketService(SERVICE_NAME)
+    public static class DeadlineHandler {
+        /**
+         * remaining time seen by the handler.
+         * @return remaining milliseconds
+         */
+        @RSocketHandler("remaining")
+        public Mono<Long> remaining() {
+            return RSocketDeadline.remaining().map(Duration::toMillis);
+        }
+
+        /**
+         * remaining time of the deadline header seen by the handler.
+         * @param deadline deadline header
+         * @return remaining milliseconds
+         */
+        @RSocketHandler("header")
+        public Mono<Long> header(@Header("rsocketDeadline") Long deadline) {
+            return Mono.just(RSocketDeadline.remaining(deadline).toMillis());
+        }
+    }
+
+    /**
+     * Handler response carrying the deadline of its reactor context.
+     * @return payload
+     */
+    private static Mono<Payload> deadline() {
+        return RSocketDeadline.get()
+                .map(String::valueOf)
+                .defaultIfEmpty("")
+                .map(DefaultPayload::create);
+    }
+
+    private static Payload payload(String remaining) {
+        return payload(remaining, "x");
+    }
+
+    private static Payload payload(String remaining, String data) {
+        CompositeByteBuf metadata = ByteBufAllocator.DEFAULT.compositeBuffer();
+        ByteBuf content = ByteBufAllocator.DEFAULT.buffer().writeBytes(remaining.getBytes(StandardCharsets.UTF_8));
+        CompositeMetadataCodec.encodeAndAddMetadata(metadata, ByteBufAllocator.DEFAULT, DEADLINE_MIME_TYPE, content);
+        return ByteBufPayload.create(ByteBufAllocator.DEFAULT.buffer().writeBytes(data.getBytes(StandardCharsets.UTF_8)), metadata);
+    }
+}
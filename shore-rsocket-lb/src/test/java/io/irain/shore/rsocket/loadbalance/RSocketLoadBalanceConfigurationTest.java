@@ -0,0 +1,38 @@
+package io.irain.shore.rsocket.loadbalance;
+
+import org.junit.jupiter.api.Test;
+import reactor.netty.resources.LoopResources;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * rsocket load balance configuration tests.
+ * @author youta
+ */
+class RSocketLoadBalanceConfigurationTest {
+    private final RSocketLoadBalanceConfiguration configuration = new RSocketLoadBalanceConfiguration();
+
+    @Test
+    void loopResourcesWithDefaultProperties() {
+        LoopResources loopResources = configuration.rsocketLoopResources(new RSocketTransportProperties());
+        try {
+            assertThat(loopResources.onServer(false)).isNotNull();
+            assertThat(loopResources.onServerSelect(false)).isSameAs(loopResources.onServer(false));
+        } finally {
+            loopResources.dispose();
+        }
+    }
+
+    @Test
+    void loopResourcesWithDedicatedSelectors() {
+        RSocketTransportProperties properties = new RSocketTransportProperties();
+        properties.setSelectCount(1);
+        properties.setWorkerCount(2);
+        LoopResources loopResources = configuration.rsocketLoopResources(properties);
+        try {
+            assertThat(loopResources.onServerSelect(false)).isNotSameAs(loopResources.onServer(false));
+        } finally {
+            loopResources.dispose();
+        }
+    }
+}
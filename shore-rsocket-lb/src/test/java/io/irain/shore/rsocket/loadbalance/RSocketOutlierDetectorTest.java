@@ -0,0 +1,417 @@
+package io.irain.shore.rsocket.loadbalance;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCountUtil;
+import io.rsocket.DuplexConnection;
+import io.rsocket.RSocketErrorException;
+import io.rsocket.exceptions.ApplicationErrorException;
+import io.rsocket.exceptions.ConnectionCloseException;
+import io.rsocket.exceptions.ConnectionErrorException;
+import io.rsocket.frame.CancelFrameCodec;
+import io.rsocket.frame.ErrorFrameCodec;
+import io.rsocket.frame.PayloadFrameCodec;
+import io.rsocket.frame.RequestResponseFrameCodec;
+import io.rsocket.metadata.CompositeMetadataCodec;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static io.irain.shore.rsocket.common.constants.RSocketConstants.DEADLINE_MIME_TYPE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * rsocket outlier detector tests.
+ * @author youta
+ */
+class RSocketOutlierDetectorTest {
+    private static final RSocketServerInstance FIRST = new RSocketServerInstance("10.0.0.1", 7000);
+    private static final RSocketServerInstance SECOND = new RSocketServerInstance("10.0.0.2", 7000);
+
+    private final RSocketOutlierDetectionProperties properties = new RSocketOutlierDetectionProperties();
+
+    @Test
+    void consecutiveFailuresEject() {
+        properties.setConsecutiveFailures(3);
+        RSocketOutlierDetector detector = new RSocketOutlierDetector(properties);
+        String key = FIRST.getURI();
+
+        detector.onFailure(key);
+        detector.onFailure(key);
+        detector.onSuccess(key);
+        detector.onFailure(key);
+        detector.onFailure(key);
+        assertThat(detector.isEjected(key)).isFalse();
+
+        detector.onFailure(key);
+        assertThat(detector.isEjected(key)).isTrue();
+    }
+
+    @Test
+    void failureRatioEjects() {
+        properties.setConsecutiveFailures(100);
+        properties.setMinimumRequests(10);
+        properties.setFailureRatio(0.5);
+        RSocketOutlierDetector detector = new RSocketOutlierDetector(properties);
+        String key = FIRST.getURI();
+
+        for (int i = 0; i < 4; i++) {
+            detector.onSuccess(key);
+            detector.onFailure(key);
+        }
+        detector.onSuccess(key);
+        // 4 of 9 failed, below minimum requests
+        assertThat(detector.isEjected(key)).isFalse();
+
+        detector.onFailure(key);
+        assertThat(detector.isEjected(key)).isTrue();
+    }
+
+    @Test
+    void coolDownDoublesUpToMaxEjectionTime() {
+        properties.setConsecutiveFailures(1);
+        properties.setBaseEjectionTime(Duration.ofMillis(100));
+        properties.setMaxEjectionTime(Duration.ofMillis(300));
+        RSocketOutlierDetector detector = new RSocketOutlierDetector(properties);
+        String key = FIRST.getURI();
+
+        // every failure of a half-open instance ejects it again: 100ms, 200ms, 400ms capped to 300ms
+        for (long coolDown : new long[]{100, 200, 300, 300}) {
+            long start = System.nanoTime();
+            detector.onFailure(key);
+            assertThat(detector.isEjected(key)).isTrue();
+            assertThat(awaitRestored(detector, key, start)).isBetween(Duration.ofMillis(coolDown), Duration.ofMillis(coolDown + 90));
+        }
+    }
+
+    @Test
+    void successOfHalfOpenInstanceClosesIt() {
+        properties.setConsecutiveFailures(2);
+        properties.setBaseEjectionTime(Duration.ofMillis(50));
+        RSocketOutlierDetector detector = new RSocketOutlierDetector(properties);
+        String key = FIRST.getURI();
+
+        detector.onFailure(key);
+        detector.onFailure(key);
+        awaitRestored(detector, key, System.nanoTime());
+        detector.onSuccess(key);
+
+        // closed again, a single failure no longer ejects
+        detector.onFailure(key);
+        assertThat(detector.isEjected(key)).isFalse();
+        long start = System.nanoTime();
+        detector.onFailure(key);
+        assertThat(detector.isEjected(key)).isTrue();
+        // the successful probe took back the previous ejection, cool-down is the base again
+        assertThat(awaitRestored(detector, key, start)).isLessThan(Duration.ofMillis(100));
+    }
+
+    @Test
+    void failuresOfEjectedInstanceAreIgnored() {
+        properties.setConsecutiveFailures(1);
+        properties.setBaseEjectionTime(Duration.ofMillis(100));
+        RSocketOutlierDetector detector = new RSocketOutlierDetector(properties);
+        String key = FIRST.getURI();
+        List<String> changes = new CopyOnWriteArrayList<>();
+        detector.changes().subscribe(changes::add);
+
+        long start = System.nanoTime();
+        detector.onFailure(key);
+        detector.onFailure(key);
+        detector.onFailure(key);
+        assertThat(awaitRestored(detector, key, start)).isLessThan(Duration.ofMillis(190));
+        // ejected and restored once, the restore is emitted right after the instance is restored
+        await(() -> changes.size() >= 2);
+        assertThat(changes).containsExactly(key, key);
+    }
+
+    @Test
+    void filterKeepsAllInstancesIfAllAreEjected() {
+        properties.setConsecutiveFailures(1);
+        RSocketOutlierDetector detector = new RSocketOutlierDetector(properties);
+        List<RSocketServerInstance> servers = List.of(FIRST, SECOND);
+
+        detector.onFailure(FIRST.getURI());
+        assertThat(detector.filter(servers)).containsExactly(SECOND);
+
+        detector.onFailure(SECOND.getURI());
+        assertThat(detector.filter(servers)).containsExactly(FIRST, SECOND);
+    }
+
+    @Test
+    void filterIsDisabled() {
+        properties.setEnabled(false);
+        properties.setConsecutiveFailures(1);
+        RSocketOutlierDetector detector = new RSocketOutlierDetector(properties);
+
+        detector.onFailure(FIRST.getURI());
+        assertThat(detector.filter(List.of(FIRST, SECOND))).containsExactly(FIRST, SECOND);
+    }
+
+    @Test
+    void retainPrunesRemovedInstances() {
+        properties.setConsecutiveFailures(1);
+        RSocketOutlierDetector detector = new RSocketOutlierDetector(properties);
+        detector.onFailure(FIRST.getURI());
+        detector.onFailure(SECOND.getURI());
+
+        detector.retain(List.of(SECOND));
+
+        assertThat(detector.isEjected(FIRST.getURI())).isFalse();
+        assertThat(detector.isEjected(SECOND.getURI())).isTrue();
+    }
+
+    @Test
+    void applicationErrorIsIgnoredByDefault() {
+        TestConnection connection = new TestConnection();
+        RSocketOutlierDetector detector = detector(1);
+        DuplexConnection tracked = connect(detector, connection);
+
+        tracked.sendFrame(1, request(1, null));
+        connection.receive(ErrorFrameCodec.encode(ByteBufAllocator.DEFAULT, 1, new ApplicationErrorException("not found")));
+
+        assertThat(detector.isEjected(FIRST.getURI())).isFalse();
+    }
+
+    @Test
+    void applicationErrorCountsIfConfigured() {
+        properties.setFailureErrorCodes(Set.of(ErrorFrameCodec.APPLICATION_ERROR));
+        TestConnection connection = new TestConnection();
+        RSocketOutlierDetector detector = detector(1);
+        DuplexConnection tracked = connect(detector, connection);
+
+        tracked.sendFrame(1, request(1, null));
+        connection.receive(ErrorFrameCodec.encode(ByteBufAllocator.DEFAULT, 1, new ApplicationErrorException("failed")));
+
+        assertThat(detector.isEjected(FIRST.getURI())).isTrue();
+    }
+
+    @Test
+    void cancelBeforeDeadlineIsIgnored() {
+        TestConnection connection = new TestConnection();
+        RSocketOutlierDetector detector = detector(1);
+        DuplexConnection tracked = connect(detector, connection);
+
+        tracked.sendFrame(1, request(1, "5000"));
+        tracked.sendFrame(1, CancelFrameCodec.encode(ByteBufAllocator.DEFAULT, 1));
+        tracked.sendFrame(3, request(3, null));
+        tracked.sendFrame(3, CancelFrameCodec.encode(ByteBufAllocator.DEFAULT, 3));
+
+        assertThat(detector.isEjected(FIRST.getURI())).isFalse();
+    }
+
+    @Test
+    void cancelAtDeadlineIsTimeout() {
+        TestConnection connection = new TestConnection();
+        RSocketOutlierDetector detector = detector(1);
+        DuplexConnection tracked = connect(detector, connection);
+
+        tracked.sendFrame(1, request(1, "0"));
+        tracked.sendFrame(1, CancelFrameCodec.encode(ByteBufAllocator.DEFAULT, 1));
+
+        assertThat(detector.isEjected(FIRST.getURI())).isTrue();
+    }
+
+    @Test
+    void anyCancelCountsIfConfigured() {
+        properties.setCancelledRequestsAsFailures(true);
+        TestConnection connection = new TestConnection();
+        RSocketOutlierDetector detector = detector(1);
+        DuplexConnection tracked = connect(detector, connection);
+
+        tracked.sendFrame(1, request(1, null));
+        tracked.sendFrame(1, CancelFrameCodec.encode(ByteBufAllocator.DEFAULT, 1));
+
+        assertThat(detector.isEjected(FIRST.getURI())).isTrue();
+    }
+
+    @Test
+    void responseAfterCancelIsIgnored() {
+        TestConnection connection = new TestConnection();
+        RSocketOutlierDetector detector = detector(2);
+        DuplexConnection tracked = connect(detector, connection);
+
+        tracked.sendFrame(1, request(1, "0"));
+        tracked.sendFrame(1, CancelFrameCodec.encode(ByteBufAllocator.DEFAULT, 1));
+        connection.receive(PayloadFrameCodec.encodeComplete(ByteBufAllocator.DEFAULT, 1));
+        tracked.sendFrame(3, request(3, "0"));
+        tracked.sendFrame(3, CancelFrameCodec.encode(ByteBufAllocator.DEFAULT, 3));
+
+        // the late completion of stream 1 did not reset the consecutive failures
+        assertThat(detector.isEjected(FIRST.getURI())).isTrue();
+    }
+
+    @Test
+    void connectionErrorCounts() {
+        TestConnection connection = new TestConnection();
+        RSocketOutlierDetector detector = detector(1);
+        connect(detector, connection);
+
+        connection.receive(ErrorFrameCodec.encode(ByteBufAllocator.DEFAULT, 0, new ConnectionErrorException("broken")));
+
+        assertThat(detector.isEjected(FIRST.getURI())).isTrue();
+    }
+
+    @Test
+    void gracefulCloseCountsOnlyWithRequestsInFlight() {
+        TestConnection idle = new TestConnection();
+        RSocketOutlierDetector detector = detector(1);
+        connect(detector, idle);
+        idle.receive(ErrorFrameCodec.encode(ByteBufAllocator.DEFAULT, 0, new ConnectionCloseException("shutdown")));
+        idle.close();
+        assertThat(detector.isEjected(FIRST.getURI())).isFalse();
+
+        TestConnection busy = new TestConnection();
+        DuplexConnection tracked = connect(detector, busy);
+        tracked.sendFrame(1, request(1, null));
+        busy.close();
+        assertThat(detector.isEjected(FIRST.getURI())).isTrue();
+    }
+
+    @Test
+    void localDisposeIsIgnored() {
+        TestConnection connection = new TestConnection();
+        RSocketOutlierDetector detector = detector(1);
+        DuplexConnection tracked = connect(detector, connection);
+
+        tracked.sendFrame(1, request(1, null));
+        tracked.dispose();
+
+        assertThat(detector.isEjected(FIRST.getURI())).isFalse();
+    }
+
+    @Test
+    void connectFailureCounts() {
+        RSocketOutlierDetector detector = detector(1);
+
+        detector.track(FIRST, () -> Mono.error(new IllegalStateException("refused")))
+                .connect()
+                .onErrorResume(e -> Mono.empty())
+                .block();
+
+        assertThat(detector.isEjected(FIRST.getURI())).isTrue();
+    }
+
+    private RSocketOutlierDetector detector(int consecutiveFailures) {
+        properties.setConsecutiveFailures(consecutiveFailures);
+        properties.setBaseEjectionTime(Duration.ofMinutes(1));
+        return new RSocketOutlierDetector(properties);
+    }
+
+    private static DuplexConnection connect(RSocketOutlierDetector detector, TestConnection connection) {
+        DuplexConnection tracked = detector.track(FIRST, () -> Mono.just(connection)).connect().block();
+        tracked.receive().subscribe(ReferenceCountUtil::release);
+        return tracked;
+    }
+
+    /**
+     * Encode request/response frame.
+     * @param streamId stream id
+     * @param remaining remaining time metadata, null for none
+     * @return frame
+     */
+    private static ByteBuf request(int streamId, String remaining) {
+        ByteBuf data = Unpooled.copiedBuffer("x", StandardCharsets.UTF_8);
+        if (remaining == null) {
+            return RequestResponseFrameCodec.encode(ByteBufAllocator.DEFAULT, streamId, false, null, data);
+        }
+        CompositeByteBuf metadata = ByteBufAllocator.DEFAULT.compositeBuffer();
+        CompositeMetadataCodec.encodeAndAddMetadata(metadata, ByteBufAllocator.DEFAULT, DEADLINE_MIME_TYPE,
+                Unpooled.copiedBuffer(remaining, StandardCharsets.UTF_8));
+        return RequestResponseFrameCodec.encode(ByteBufAllocator.DEFAULT, streamId, false, metadata, data);
+    }
+
+    /**
+     * Wait until the instance is restored.
+     * @param detector outlier detector
+     * @param key instance uri
+     * @param start nano time before the ejection
+     * @return time since start
+     */
+    private static Duration awaitRestored(RSocketOutlierDetector detector, String key, long start) {
+        await(() -> !detector.isEjected(key));
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    /**
+     * Wait until the condition holds, at most 5 seconds.
+     * @param condition condition
+     */
+    private static void await(BooleanSupplier condition) {
+        long start = System.nanoTime();
+        while (!condition.getAsBoolean()) {
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Duplex connection receiving frames pushed by the test.
+     */
+    private static class TestConnection implements DuplexConnection {
+        private final Sinks.Many<ByteBuf> inbound = Sinks.many().unicast().onBackpressureBuffer();
+        private final Sinks.Empty<Void> closed = Sinks.empty();
+        private volatile boolean disposed;
+
+        private void receive(ByteBuf frame) {
+            inbound.tryEmitNext(frame);
+        }
+
+        private void close() {
+            disposed = true;
+            closed.tryEmitEmpty();
+        }
+
+        @Override
+        public void sendFrame(int streamId, ByteBuf frame) {
+            frame.release();
+        }
+
+        @Override
+        public void sendErrorAndClose(RSocketErrorException e) {
+            close();
+        }
+
+        @Override
+        public Flux<ByteBuf> receive() {
+            return inbound.asFlux();
+        }
+
+        @Override
+        public ByteBufAllocator alloc() {
+            return ByteBufAllocator.DEFAULT;
+        }
+
+        @Override
+        public SocketAddress remoteAddress() {
+            return InetSocketAddress.createUnresolved(FIRST.getHost(), FIRST.getPort());
+        }
+
+        @Override
+        public Mono<Void> onClose() {
+            return closed.asMono();
+        }
+
+        @Override
+        public void dispose() {
+            close();
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return disposed;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package io.irain.shore.rsocket.loadbalance;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * rsocket registry snapshot store tests.
+ * @author youta
+ */
+class RSocketRegistrySnapshotStoreTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void saveAndLoad() {
+        RSocketServerInstance tcp = new RSocketServerInstance("10.0.0.1", 7000);
+        RSocketServerInstance webSocket = new RSocketServerInstance("10.0.0.2", 8080);
+        webSocket.setSchema("ws");
+        webSocket.setPath("/rsocket");
+        RSocketServerInstance unix = new RSocketServerInstance("127.0.0.1", 7000);
+        unix.setSchema("unix");
+        unix.setPath("/tmp/shore-rsocket.sock");
+        Path file = directory.resolve("nested").resolve("registry.cbor");
+
+        new RSocketRegistrySnapshotStore(file).save(Map.of("first", List.of(tcp, webSocket), "second", List.of(unix)));
+        Map<String, List<RSocketServerInstance>> loaded = new RSocketRegistrySnapshotStore(file).load();
+
+        assertThat(loaded).containsOnlyKeys("first", "second");
+        assertThat(loaded.get("first")).extracting(RSocketServerInstance::getURI)
+                .containsExactly("tcp://10.0.0.1:7000", "ws://10.0.0.2:8080/rsocket");
+        assertThat(loaded.get("second")).extracting(RSocketServerInstance::getURI)
+                .containsExactly("unix:///tmp/shore-rsocket.sock");
+        assertThat(directory.resolve("nested")).isDirectoryNotContaining("glob:**.tmp");
+    }
+
+    @Test
+    void derivedPropertiesAreNotSaved() throws Exception {
+        Path file = directory.resolve("registry.cbor");
+
+        new RSocketRegistrySnapshotStore(file).save(Map.of("first", List.of(new RSocketServerInstance("10.0.0.1", 7000))));
+
+        String content = new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1);
+        assertThat(content).contains("host", "port", "schema").doesNotContain("uri", "webSocket", "unixDomainSocket");
+    }
+
+    @Test
+    void missingFileLoadsEmpty() {
+        assertThat(new RSocketRegistrySnapshotStore(directory.resolve("absent.cbor")).load()).isEmpty();
+    }
+
+    @Test
+    void corruptFileLoadsEmpty() throws Exception {
+        Path file = Files.write(directory.resolve("registry.cbor"), new byte[]{1, 2, 3});
+
+        assertThat(new RSocketRegistrySnapshotStore(file).load()).isEmpty();
+    }
+}
@@ -0,0 +1,251 @@
+package io.irain.shore.rsocket.loadbalance;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.netty.channel.epoll.Epoll;
+import io.rsocket.loadbalance.LoadbalanceTarget;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
+import org.springframework.cloud.client.discovery.simple.reactive.SimpleReactiveDiscoveryClient;
+import org.springframework.cloud.client.discovery.simple.reactive.SimpleReactiveDiscoveryProperties;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * rsocket service discovery registry tests.
+ * @author youta
+ */
+class RSocketServiceDiscoveryRegistryTest {
+    private static final String SERVICE_NAME = "registry";
+    private static final String UNIX_PATH = "/tmp/shore-rsocket-registry.sock";
+
+    @TempDir
+    Path directory;
+
+    private final SimpleReactiveDiscoveryProperties properties = new SimpleReactiveDiscoveryProperties();
+    private final RSocketServiceDiscoveryRegistry registry = new RSocketServiceDiscoveryRegistry(new SimpleReactiveDiscoveryClient(properties));
+
+    @Test
+    void localHostMatchesLoopbackAndInterfaceAddresses() throws Exception {
+        assertThat(registry.isLocalHost("localhost")).isTrue();
+        assertThat(registry.isLocalHost("127.0.0.1")).isTrue();
+        assertThat(registry.isLocalHost("::1")).isTrue();
+        assertThat(registry.isLocalHost("[::1]")).isTrue();
+        assertThat(registry.isLocalHost("0.0.0.0")).isTrue();
+        InetAddress interfaceAddress = NetworkInterface.networkInterfaces()
+                .flatMap(NetworkInterface::inetAddresses)
+                .filter(address -> !address.isLoopbackAddress())
+                .findFirst()
+                .orElse(null);
+        if (interfaceAddress != null) {
+            assertThat(registry.isLocalHost(interfaceAddress.getHostAddress())).isTrue();
+        }
+    }
+
+    @Test
+    void localHostRejectsRemoteAddressesWithoutLookup() {
+        assertThat(registry.isLocalHost("203.0.113.7")).isFalse();
+        assertThat(registry.isLocalHost("2001:db8::1")).isFalse();
+        // host names other than localhost are never resolved
+        assertThat(registry.isLocalHost("example.com")).isFalse();
+        assertThat(registry.isLocalHost("not-a-host.invalid")).isFalse();
+    }
+
+    @Test
+    void unixDomainSocketIsSelectedForCoLocatedInstances() {
+        assumeTrue(Epoll.isAvailable());
+        instances(instance("local", "127.0.0.1", Map.of("rsocketPort", "7000", "rsocketUnixPath", UNIX_PATH)),
+                instance("remote", "203.0.113.7", Map.of("rsocketPort", "7000", "rsocketUnixPath", UNIX_PATH)),
+                instance("tcp", "127.0.0.1", Map.of("rsocketPort", "7001")),
+                instance("unix", "203.0.113.8", Map.of("rsocketPort", "7002", "rsocketSchema", "unix")));
+
+        registry.getServers(SERVICE_NAME).blockFirst();
+
+        assertThat(registry.getSnapshots().get(SERVICE_NAME))
+                .extracting(RSocketServerInstance::getURI)
+                .containsExactly("unix://" + UNIX_PATH, "tcp://203.0.113.7:7000", "tcp://127.0.0.1:7001", "tcp://203.0.113.8:7002");
+    }
+
+    @Test
+    void unixPathChangeReplacesTarget() {
+        assumeTrue(Epoll.isAvailable());
+        instances(instance("local", "127.0.0.1", Map.of("rsocketPort", "7000")));
+        List<List<String>> targets = new CopyOnWriteArrayList<>();
+        registry.getServers(SERVICE_NAME)
+                .map(loadbalanceTargets -> loadbalanceTargets.stream().map(LoadbalanceTarget::getKey).collect(Collectors.toList()))
+                .subscribe(targets::add);
+
+        instances(instance("local", "127.0.0.1", Map.of("rsocketPort", "7000", "rsocketUnixPath", UNIX_PATH)));
+        registry.refreshServers();
+
+        assertThat(targets).containsExactly(List.of("tcp://127.0.0.1:7000"), List.of("unix://" + UNIX_PATH));
+    }
+
+    @Test
+    void instancesDifferingInSchemaOrPathAreNotEqual() {
+        RSocketServerInstance tcp = new RSocketServerInstance("127.0.0.1", 7000);
+        RSocketServerInstance unix = new RSocketServerInstance("127.0.0.1", 7000);
+        unix.setSchema("unix");
+        unix.setPath(UNIX_PATH);
+        RSocketServerInstance otherUnix = new RSocketServerInstance("127.0.0.1", 7000);
+        otherUnix.setSchema("unix");
+        otherUnix.setPath("/tmp/other.sock");
+        RSocketServerInstance sameUnix = new RSocketServerInstance("127.0.0.1", 7000);
+        sameUnix.setSchema("unix");
+        sameUnix.setPath(UNIX_PATH);
+
+        assertThat(unix).isNotEqualTo(tcp).isNotEqualTo(otherUnix).isEqualTo(sameUnix).hasSameHashCodeAs(sameUnix);
+    }
+
+    @Test
+    void warmStartFromPersistedInstances() {
+        Path file = persist(new RSocketServerInstance("10.0.0.1", 7000));
+        TestDiscoveryClient discoveryClient = new TestDiscoveryClient();
+        RSocketServiceDiscoveryRegistry warmRegistry = registry(discoveryClient, file);
+
+        // routed before discovery answers
+        List<List<String>> targets = targets(warmRegistry);
+
+        assertThat(targets).containsExactly(List.of("tcp://10.0.0.1:7000"));
+        assertThat(warmRegistry.getSnapshots().get(SERVICE_NAME)).containsExactly(new RSocketServerInstance("10.0.0.1", 7000));
+    }
+
+    @Test
+    void warmStartIsReconciledWithDiscovery() {
+        Path file = persist(new RSocketServerInstance("10.0.0.1", 7000));
+        TestDiscoveryClient discoveryClient = new TestDiscoveryClient();
+        RSocketServiceDiscoveryRegistry warmRegistry = registry(discoveryClient, file);
+        List<List<String>> targets = targets(warmRegistry);
+
+        discoveryClient.instances.tryEmitNext(instance("second", "10.0.0.2", Map.of("rsocketPort", "7000")));
+        discoveryClient.instances.tryEmitComplete();
+
+        assertThat(targets).containsExactly(List.of("tcp://10.0.0.1:7000"), List.of("tcp://10.0.0.2:7000"));
+        awaitPersisted(file, List.of(new RSocketServerInstance("10.0.0.2", 7000)));
+        warmRegistry.dispose();
+    }
+
+    @Test
+    void warmStartIsKeptIfDiscoveryFails() {
+        Path file = persist(new RSocketServerInstance("10.0.0.1", 7000));
+        TestDiscoveryClient discoveryClient = new TestDiscoveryClient();
+        RSocketServiceDiscoveryRegistry warmRegistry = registry(discoveryClient, file);
+        ListAppender<ILoggingEvent> warnings = new ListAppender<>();
+        warnings.start();
+        Logger logger = (Logger) LoggerFactory.getLogger(RSocketServiceDiscoveryRegistry.class);
+        logger.addAppender(warnings);
+        try {
+            List<List<String>> targets = targets(warmRegistry);
+            discoveryClient.instances.tryEmitError(new IllegalStateException("discovery down"));
+
+            assertThat(targets).containsExactly(List.of("tcp://10.0.0.1:7000"));
+            assertThat(warmRegistry.getSnapshots().get(SERVICE_NAME)).containsExactly(new RSocketServerInstance("10.0.0.1", 7000));
+            assertThat(warnings.list).extracting(ILoggingEvent::getFormattedMessage).singleElement().asString().contains(SERVICE_NAME);
+        } finally {
+            logger.detachAppender(warnings);
+        }
+    }
+
+    @Test
+    void warmStartIsKeptIfDiscoveryIsEmpty() {
+        Path file = persist(new RSocketServerInstance("10.0.0.1", 7000));
+        TestDiscoveryClient discoveryClient = new TestDiscoveryClient();
+        RSocketServiceDiscoveryRegistry warmRegistry = registry(discoveryClient, file);
+        List<List<String>> targets = targets(warmRegistry);
+
+        discoveryClient.instances.tryEmitComplete();
+
+        assertThat(targets).containsExactly(List.of("tcp://10.0.0.1:7000"));
+    }
+
+    @Test
+    void disposeSavesLatestSnapshots() {
+        Path file = directory.resolve("registry.cbor");
+        instances(instance("first", "10.0.0.1", Map.of("rsocketPort", "7000")));
+        RSocketServiceDiscoveryRegistry persistingRegistry = registry(new SimpleReactiveDiscoveryClient(properties), file);
+        persistingRegistry.getServers(SERVICE_NAME).blockFirst();
+        persistingRegistry.setServers(SERVICE_NAME, List.of(new RSocketServerInstance("10.0.0.3", 7000)));
+
+        persistingRegistry.dispose();
+
+        assertThat(new RSocketRegistrySnapshotStore(file).load().get(SERVICE_NAME)).containsExactly(new RSocketServerInstance("10.0.0.3", 7000));
+    }
+
+    private Path persist(RSocketServerInstance... servers) {
+        Path file = directory.resolve("registry.cbor");
+        new RSocketRegistrySnapshotStore(file).save(Map.of(SERVICE_NAME, List.of(servers)));
+        return file;
+    }
+
+    private static RSocketServiceDiscoveryRegistry registry(ReactiveDiscoveryClient discoveryClient, Path file) {
+        return new RSocketServiceDiscoveryRegistry(discoveryClient, new RSocketClientTransportFactory(),
+                new RSocketOutlierDetector(new RSocketOutlierDetectionProperties()), new RSocketRegistrySnapshotStore(file));
+    }
+
+    private static List<List<String>> targets(RSocketServiceDiscoveryRegistry registry) {
+        List<List<String>> targets = new CopyOnWriteArrayList<>();
+        registry.getServers(SERVICE_NAME)
+                .map(loadbalanceTargets -> loadbalanceTargets.stream().map(LoadbalanceTarget::getKey).collect(Collectors.toList()))
+                .subscribe(targets::add);
+        return targets;
+    }
+
+    private static void awaitPersisted(Path file, List<RSocketServerInstance> servers) {
+        long start = System.nanoTime();
+        while (!servers.equals(new RSocketRegistrySnapshotStore(file).load().get(SERVICE_NAME))) {
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+            Thread.onSpinWait();
+        }
+    }
+
+    private void instances(DefaultServiceInstance... instances) {
+        Map<String, List<DefaultServiceInstance>> serviceInstances = new HashMap<>();
+        serviceInstances.put(SERVICE_NAME, List.of(instances));
+        properties.setInstances(serviceInstances);
+    }
+
+    private static DefaultServiceInstance instance(String instanceId, String host, Map<String, String> metadata) {
+        return new DefaultServiceInstance(instanceId, SERVICE_NAME, host, 8080, false, metadata);
+    }
+
+    /**
+     * Discovery client answering when the test emits instances.
+     */
+    private static class TestDiscoveryClient implements ReactiveDiscoveryClient {
+        private final Sinks.Many<ServiceInstance> instances = Sinks.many().replay().all();
+
+        @Override
+        public String description() {
+            return "test";
+        }
+
+        @Override
+        public Flux<ServiceInstance> getInstances(String serviceId) {
+            return instances.asFlux();
+        }
+
+        @Override
+        public Flux<String> getServices() {
+            return Flux.just(SERVICE_NAME);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package io.irain.shore.rsocket.loadbalance;
+
+import io.netty.channel.epoll.Epoll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import reactor.netty.resources.LoopResources;
+
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * rsocket unix domain socket server tests.
+ * @author youta
+ */
+class RSocketUnixDomainSocketServerTest {
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(Epoll.isAvailable());
+    }
+
+    @Test
+    void staleSocketIsReplaced() throws Exception {
+        Path socket = directory.resolve("stale.sock");
+        // closing a bound channel leaves the socket file behind, as a crashed process does
+        try (ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.bind(UnixDomainSocketAddress.of(socket));
+        }
+        assertThat(socket).exists();
+
+        RSocketUnixDomainSocketServer server = server(socket);
+        server.start();
+        try {
+            assertThat(server.isRunning()).isTrue();
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void regularFileIsKept() throws Exception {
+        Path file = Files.writeString(directory.resolve("application.yml"), "keep");
+
+        assertThatThrownBy(() -> server(file).start())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("is not a socket");
+        assertThat(file).hasContent("keep");
+    }
+
+    @Test
+    void directoryIsKept() {
+        assertThatThrownBy(() -> server(directory).start())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("is not a socket");
+        assertThat(directory).isDirectory();
+    }
+
+    private static RSocketUnixDomainSocketServer server(Path path) {
+        RSocketMessageHandler messageHandler = new RSocketMessageHandler();
+        messageHandler.afterPropertiesSet();
+        return new RSocketUnixDomainSocketServer(path.toString(), messageHandler, List.of(), LoopResources.create("shore-rsocket-test"));
+    }
+}
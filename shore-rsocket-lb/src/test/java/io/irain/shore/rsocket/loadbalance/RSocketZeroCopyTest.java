@@ -0,0 +1,222 @@
+package io.irain.shore.rsocket.loadbalance;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.irain.shore.rsocket.common.annotations.RSocketHandler;
+import io.irain.shore.rsocket.common.annotations.SpringRSocketService;
+import io.irain.shore.rsocket.loadbalance.proxy.RSocketRemoteServiceBuilder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.util.ResourceLeakDetector;
+import io.rsocket.core.RSocketServer;
+import io.rsocket.transport.netty.server.CloseableChannel;
+import io.rsocket.transport.netty.server.TcpServerTransport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.discovery.simple.reactive.SimpleReactiveDiscoveryClient;
+import org.springframework.cloud.client.discovery.simple.reactive.SimpleReactiveDiscoveryProperties;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * zero copy payload tests, buffers sent through the remote service proxy must not leak.
+ * @author youta
+ */
+class RSocketZeroCopyTest {
+    private static final String SERVICE_NAME = "zero-copy";
+    private static final int ITERATIONS = 500;
+
+    private static ResourceLeakDetector.Level level;
+    private static ListAppender<ILoggingEvent> leaks;
+    private static CloseableChannel server;
+    private static RSocketRequester requester;
+    private static ZeroCopyService service;
+
+    /**
+     * zero copy service.
+     */
+    public interface ZeroCopyService {
+        /**
+         * echo data buffer.
+         * @param buffer buffer
+         * @return buffer
+         */
+        Mono<DataBuffer> dataBuffer(DataBuffer buffer);
+
+        /**
+         * echo netty buffer.
+         * @param buffer buffer
+         * @return buffer
+         */
+        Mono<ByteBuf> byteBuf(ByteBuf buffer);
+
+        /**
+         * echo string.
+         * @param text text
+         * @return text
+         */
+        Mono<String> string(String text);
+    }
+
+    /**
+     * zero copy service handler, buffers are echoed back without copy.
+     */
+    @SpringRSocketService(SERVICE_NAME)
+    public static class ZeroCopyHandler {
+        /**
+         * echo data buffer.
+         * @param buffer buffer
+         * @return buffer
+         */
+        @RSocketHandler("dataBuffer")
+        public Mono<DataBuffer> dataBuffer(DataBuffer buffer) {
+            return Mono.just(buffer);
+        }
+
+        /**
+         * echo netty buffer.
+         * @param buffer buffer
+         * @return buffer
+         */
+        @RSocketHandler("byteBuf")
+        public Mono<ByteBuf> byteBuf(ByteBuf buffer) {
+            return Mono.just(buffer);
+        }
+
+        /**
+         * echo string.
+         * @param text text
+         * @return text
+         */
+        @RSocketHandler("string")
+        public Mono<String> string(String text) {
+            return Mono.just(text);
+        }
+    }
+
+    @BeforeAll
+    static void setUp() {
+        level = ResourceLeakDetector.getLevel();
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+        leaks = new ListAppender<>();
+        leaks.start();
+        ((Logger) LoggerFactory.getLogger(ResourceLeakDetector.class)).addAppender(leaks);
+
+        RSocketLoadBalanceConfiguration configuration = new RSocketLoadBalanceConfiguration();
+        RSocketStrategies strategies = configuration.rSocketStrategies();
+        RSocketServer rsocketServer = RSocketServer.create(RSocketMessageHandler.responder(strategies, new ZeroCopyHandler()));
+        configuration.rsocketZeroCopyServerCustomizer().customize(rsocketServer);
+        server = rsocketServer.bind(TcpServerTransport.create("127.0.0.1", 0)).block();
+
+        int port = server.address().getPort();
+        SimpleReactiveDiscoveryProperties properties = new SimpleReactiveDiscoveryProperties();
+        properties.setInstances(Map.of(SERVICE_NAME, List.of(new DefaultServiceInstance("zero-copy-1", SERVICE_NAME,
+                "127.0.0.1", port, false, Map.of("rsocketPort", String.valueOf(port))))));
+        RSocketServiceDiscoveryRegistry registry = new RSocketServiceDiscoveryRegistry(new SimpleReactiveDiscoveryClient(properties));
+        requester = registry.buildLoadBalanceRSocket(SERVICE_NAME, RSocketRequester.builder()
+                .rsocketStrategies(strategies)
+                .rsocketConnector(configuration.rsocketZeroCopyConnectorConfigurer()));
+        service = new RSocketRemoteServiceBuilder<ZeroCopyService>()
+                .serviceName(SERVICE_NAME)
+                .serviceInterface(ZeroCopyService.class)
+                .rsocketRequester(requester)
+                .build();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        requester.dispose();
+        server.dispose();
+        ((Logger) LoggerFactory.getLogger(ResourceLeakDetector.class)).detachAppender(leaks);
+        ResourceLeakDetector.setLevel(level);
+    }
+
+    @Test
+    void dataBufferIsNotLeaked() {
+        NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+        for (int i = 0; i < ITERATIONS; i++) {
+            NettyDataBuffer request = bufferFactory.wrap(PooledByteBufAllocator.DEFAULT.buffer().writeBytes(bytes(i)));
+            DataBuffer response = service.dataBuffer(request).block();
+            assertThat(response).isNotNull();
+            assertThat(response.toString(StandardCharsets.UTF_8)).isEqualTo(text(i));
+            assertThat(request.getNativeBuffer().refCnt()).isZero();
+            assertReleased(((NettyDataBuffer) response).getNativeBuffer(), () -> DataBufferUtils.release(response));
+        }
+        assertNoLeaks();
+    }
+
+    @Test
+    void byteBufIsNotLeaked() {
+        for (int i = 0; i < ITERATIONS; i++) {
+            ByteBuf request = PooledByteBufAllocator.DEFAULT.buffer().writeBytes(bytes(i));
+            ByteBuf response = service.byteBuf(request).block();
+            assertThat(response).isNotNull();
+            assertThat(response.toString(StandardCharsets.UTF_8)).isEqualTo(text(i));
+            assertThat(request.refCnt()).isZero();
+            assertReleased(response, response::release);
+        }
+        assertNoLeaks();
+    }
+
+    @Test
+    void stringIsNotLeaked() {
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertThat(service.string(text(i)).block()).isEqualTo(text(i));
+        }
+        assertNoLeaks();
+    }
+
+    private static String text(int i) {
+        return "payload-" + i;
+    }
+
+    private static byte[] bytes(int i) {
+        return text(i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Release a received buffer and wait for its reference count to reach exactly 0. The buffer is a slice sharing the
+     * reference count of its inbound frame, which the connection may not have released yet when the response arrives,
+     * a buffer retained anywhere else never reaches 0.
+     * @param buffer received buffer
+     * @param release release action
+     */
+    private static void assertReleased(ByteBuf buffer, Runnable release) {
+        assertThat(buffer.refCnt()).isBetween(1, 2);
+        release.run();
+        long start = System.nanoTime();
+        while (buffer.refCnt() != 0) {
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Let the leak detector report buffers that were never released, it tracks every buffer and reports unreachable ones
+     * on later allocations.
+     */
+    private static void assertNoLeaks() {
+        System.gc();
+        for (int i = 0; i < 100; i++) {
+            PooledByteBufAllocator.DEFAULT.buffer().release();
+        }
+        assertThat(leaks.list).extracting(ILoggingEvent::getFormattedMessage).isEmpty();
+    }
+}
@@ -0,0 +1,214 @@
+package io.irain.shore.rsocket.simulator;
+
+import io.irain.shore.rsocket.loadbalance.RSocketClientTransportFactory;
+import io.irain.shore.rsocket.loadbalance.RSocketLoadBalanceConfiguration;
+import io.irain.shore.rsocket.loadbalance.RSocketOutlierDetectionProperties;
+import io.irain.shore.rsocket.loadbalance.RSocketOutlierDetector;
+import io.irain.shore.rsocket.loadbalance.RSocketServiceDiscoveryRegistry;
+import io.irain.shore.rsocket.loadbalance.proxy.RSocketRemoteServiceBuilder;
+import io.rsocket.frame.ErrorFrameCodec;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * cluster simulator, runs in-process rsocket servers behind a simulated discovery client
+ * and drives the discovery registry and remote service proxy at a target rate.
+ * <code>
+ * ClusterSimulator simulator = new ClusterSimulator();
+ * simulator.addInstance(SimulatedInstanceProfile.healthy(Duration.ofMillis(5)));
+ * simulator.at(Duration.ofSeconds(10), s -&gt; s.addInstance(SimulatedInstanceProfile.healthy(Duration.ofMillis(50))));
+ * SimulationReport report = simulator.run(500, Duration.ofSeconds(30));
+ * </code>
+ *
+ * @author youta
+ */
+public class ClusterSimulator {
+    private final RSocketStrategies strategies = new RSocketLoadBalanceConfiguration().rSocketStrategies();
+    private final SimulatedDiscoveryClient discoveryClient = new SimulatedDiscoveryClient();
+    private final RSocketServiceDiscoveryRegistry registry;
+    /**
+     * instance id and simulated instance mapping, removed instances are kept for the report
+     */
+    private final Map<String, SimulatedInstance> instances = new LinkedHashMap<>();
+    private final List<Map.Entry<Duration, Consumer<ClusterSimulator>>> script = new ArrayList<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+    private Duration refreshInterval = Duration.ofSeconds(15);
+
+    /**
+     * Constructor with default transport and outlier detection counting application errors,
+     * which is how simulated instances fail.
+     */
+    public ClusterSimulator() {
+        this(new RSocketClientTransportFactory(), new RSocketOutlierDetector(applicationErrorDetection()));
+    }
+
+    /**
+     * Constructor.
+     * @param transportFactory client transport factory
+     * @param outlierDetector outlier detector
+     */
+    public ClusterSimulator(RSocketClientTransportFactory transportFactory, RSocketOutlierDetector outlierDetector) {
+        this.registry = new RSocketServiceDiscoveryRegistry(discoveryClient, transportFactory, outlierDetector);
+    }
+
+    /**
+     * Outlier detection properties counting application errors as failures.
+     * @return outlier detection properties
+     */
+    private static RSocketOutlierDetectionProperties applicationErrorDetection() {
+        RSocketOutlierDetectionProperties properties = new RSocketOutlierDetectionProperties();
+        properties.setFailureErrorCodes(Set.of(ErrorFrameCodec.APPLICATION_ERROR));
+        return properties;
+    }
+
+    /**
+     * Start a simulated instance and register it to discovery.
+     * @param profile instance profile
+     * @return simulated instance
+     */
+    public synchronized SimulatedInstance addInstance(SimulatedInstanceProfile profile) {
+        SimulatedInstance instance = new SimulatedInstance("instance-" + sequence.incrementAndGet(), profile);
+        instance.start(strategies);
+        instances.put(instance.getId(), instance);
+        discoveryClient.addInstance(new DefaultServiceInstance(instance.getId(), SimulationService.SERVICE_NAME, "127.0.0.1",
+                instance.getPort(), false, Map.of("rsocketPort", String.valueOf(instance.getPort()))));
+        return instance;
+    }
+
+    /**
+     * Deregister a simulated instance from discovery and stop it.
+     * @param instanceId instance id
+     */
+    public synchronized void removeInstance(String instanceId) {
+        discoveryClient.removeInstance(SimulationService.SERVICE_NAME, instanceId);
+        SimulatedInstance instance = instances.get(instanceId);
+        if (instance != null) {
+            instance.stop();
+        }
+    }
+
+    /**
+     * Schedule an action relative to the start of the run, such as adding or removing instances.
+     * @param offset offset from the start of the run
+     * @param action action
+     * @return cluster simulator
+     */
+    public ClusterSimulator at(Duration offset, Consumer<ClusterSimulator> action) {
+        script.add(Map.entry(offset, action));
+        return this;
+    }
+
+    /**
+     * Set the discovery refresh interval, 15s as the scheduled refresh of the registry.
+     * @param refreshInterval refresh interval
+     * @return cluster simulator
+     */
+    public ClusterSimulator refreshInterval(Duration refreshInterval) {
+        this.refreshInterval = refreshInterval;
+        return this;
+    }
+
+    /**
+     * Drive the proxy at the target rate.
+     * @param rate requests per second
+     * @param duration duration of the run
+     * @return simulation report
+     */
+    public SimulationReport run(int rate, Duration duration) {
+        RSocketRequester requester = registry.buildLoadBalanceRSocket(SimulationService.SERVICE_NAME,
+                RSocketRequester.builder().rsocketStrategies(strategies));
+        SimulationService service = new RSocketRemoteServiceBuilder<SimulationService>()
+                .serviceName(SimulationService.SERVICE_NAME)
+                .serviceInterface(SimulationService.class)
+                .rsocketRequester(requester)
+                .build();
+        Map<String, Long> baseline = new LinkedHashMap<>();
+        synchronized (this) {
+            instances.forEach((instanceId, instance) -> baseline.put(instanceId, instance.getRequests()));
+        }
+        List<Disposable> scheduled = new ArrayList<>();
+        scheduled.add(Flux.interval(refreshInterval).subscribe(tick -> registry.refreshServers()));
+        // actions start and stop servers, which blocks
+        for (Map.Entry<Duration, Consumer<ClusterSimulator>> action : script) {
+            scheduled.add(Mono.delay(action.getKey(), Schedulers.boundedElastic()).subscribe(tick -> action.getValue().accept(this)));
+        }
+        // fire every 10ms, each tick sends the requests due since the previous one so that the total is rate * duration
+        Duration period = Duration.ofMillis(10);
+        long ticks = Math.max(1, duration.toMillis() / period.toMillis());
+        long ticksPerSecond = 1000 / period.toMillis();
+        AtomicLong requests = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        Queue<Long> latencies = new ConcurrentLinkedQueue<>();
+        long start = System.nanoTime();
+        try {
+            Flux.interval(period)
+                    .take(ticks)
+                    .flatMapIterable(tick -> Collections.nCopies(
+                            (int) ((tick + 1) * rate / ticksPerSecond - tick * rate / ticksPerSecond), tick))
+                    .flatMap(tick -> {
+                        requests.incrementAndGet();
+                        long requestStart = System.nanoTime();
+                        return service.echo("ping")
+                                .doOnNext(payload -> latencies.add(System.nanoTime() - requestStart))
+                                .onErrorResume(e -> {
+                                    errors.incrementAndGet();
+                                    return Mono.empty();
+                                });
+                    }, Integer.MAX_VALUE)
+                    .then()
+                    .block();
+        } finally {
+            scheduled.forEach(Disposable::dispose);
+            requester.dispose();
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        long[] sortedLatencies = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        Map<String, Long> instanceRequests = new LinkedHashMap<>();
+        synchronized (this) {
+            instances.forEach((instanceId, instance) ->
+                    instanceRequests.put(instanceId, instance.getRequests() - baseline.getOrDefault(instanceId, 0L)));
+        }
+        return new SimulationReport(elapsed, requests.get(), errors.get(), sortedLatencies, instanceRequests);
+    }
+
+    /**
+     * Stop all simulated instances.
+     */
+    public synchronized void shutdown() {
+        new ArrayList<>(instances.keySet()).forEach(this::removeInstance);
+    }
+
+    /**
+     * Run a skewed latency and churn scenario: two fast instances, one slow and one failing instance,
+     * a fast instance joins after a third of the run and the first instance leaves after two thirds.
+     * @param args rate (default 500) and duration in seconds (default 30)
+     */
+    public static void main(String[] args) {
+        int rate = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        Duration duration = Duration.ofSeconds(args.length > 1 ? Long.parseLong(args[1]) : 30);
+        ClusterSimulator simulator = new ClusterSimulator().refreshInterval(Duration.ofSeconds(5));
+        try {
+            SimulatedInstance first = simulator.addInstance(SimulatedInstanceProfile.healthy(Duration.ofMillis(5)));
+            simulator.addInstance(SimulatedInstanceProfile.healthy(Duration.ofMillis(5)));
+            simulator.addInstance(new SimulatedInstanceProfile(Duration.ofMillis(50), Duration.ofMillis(50), 0));
+            simulator.addInstance(new SimulatedInstanceProfile(Duration.ofMillis(5), Duration.ZERO, 0.3));
+            simulator.at(duration.dividedBy(3), s -> s.addInstance(SimulatedInstanceProfile.healthy(Duration.ofMillis(5))));
+            simulator.at(duration.multipliedBy(2).dividedBy(3), s -> s.removeInstance(first.getId()));
+            System.out.print(simulator.run(rate, duration));
+        } finally {
+            simulator.shutdown();
+        }
+    }
+}
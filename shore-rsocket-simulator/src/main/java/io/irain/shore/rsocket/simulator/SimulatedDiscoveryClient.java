@@ -0,0 +1,66 @@
+package io.irain.shore.rsocket.simulator;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * simulated discovery client, a local stand-in whose instances are added and removed by the simulation script.
+ * @author youta
+ */
+public class SimulatedDiscoveryClient implements ReactiveDiscoveryClient {
+    /**
+     * serviceId and instance list mapping
+     */
+    private final Map<String, List<ServiceInstance>> instances = new ConcurrentHashMap<>();
+
+    /**
+     * Register instance.
+     * @param instance service instance
+     */
+    public void addInstance(ServiceInstance instance) {
+        instances.computeIfAbsent(instance.getServiceId(), serviceId -> new CopyOnWriteArrayList<>()).add(instance);
+    }
+
+    /**
+     * Deregister instance.
+     * @param serviceId service id
+     * @param instanceId instance id
+     */
+    public void removeInstance(String serviceId, String instanceId) {
+        instances.getOrDefault(serviceId, List.of()).removeIf(instance -> instanceId.equals(instance.getInstanceId()));
+    }
+
+    /**
+     * description.
+     * @return description
+     */
+    @Override
+    public String description() {
+        return "Simulated Reactive Discovery Client";
+    }
+
+    /**
+     * Get instances.
+     * @param serviceId service id
+     * @return service instances
+     */
+    @Override
+    public Flux<ServiceInstance> getInstances(String serviceId) {
+        return Flux.fromIterable(instances.getOrDefault(serviceId, List.of()));
+    }
+
+    /**
+     * Get services.
+     * @return service ids
+     */
+    @Override
+    public Flux<String> getServices() {
+        return Flux.fromIterable(instances.keySet());
+    }
+}
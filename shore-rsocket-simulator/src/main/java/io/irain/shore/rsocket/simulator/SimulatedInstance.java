@@ -0,0 +1,102 @@
+package io.irain.shore.rsocket.simulator;
+
+import io.irain.shore.rsocket.common.annotations.RSocketHandler;
+import io.irain.shore.rsocket.common.annotations.SpringRSocketService;
+import io.irain.shore.rsocket.loadbalance.RSocketDeadlineInterceptor;
+import io.rsocket.core.RSocketServer;
+import io.rsocket.transport.netty.server.CloseableChannel;
+import io.rsocket.transport.netty.server.TcpServerTransport;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * simulated instance, an in-process rsocket server answering with the latency and errors of its profile.
+ * @author youta
+ */
+@SpringRSocketService(SimulationService.SERVICE_NAME)
+public class SimulatedInstance {
+    private final String id;
+    private final SimulatedInstanceProfile profile;
+    private final AtomicLong requests = new AtomicLong();
+    private CloseableChannel channel;
+
+    /**
+     * Constructor.
+     * @param id instance id
+     * @param profile instance profile
+     */
+    public SimulatedInstance(String id, SimulatedInstanceProfile profile) {
+        this.id = id;
+        this.profile = profile;
+    }
+
+    /**
+     * Start the server on a random loopback port.
+     * @param strategies rsocket strategies
+     */
+    public void start(RSocketStrategies strategies) {
+        this.channel = RSocketServer.create(RSocketMessageHandler.responder(strategies, this))
+                .interceptors(registry -> registry.forSocketAcceptor(new RSocketDeadlineInterceptor()))
+                .bind(TcpServerTransport.create("127.0.0.1", 0))
+                .block();
+    }
+
+    /**
+     * Stop the server.
+     */
+    public void stop() {
+        if (this.channel != null) {
+            this.channel.dispose();
+            this.channel.onClose().block();
+        }
+    }
+
+    /**
+     * Echo payload after the profile latency, or fail with the profile error rate.
+     * @param payload payload
+     * @return payload
+     */
+    @RSocketHandler("echo")
+    public Mono<String> echo(String payload) {
+        requests.incrementAndGet();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long jitter = profile.getJitter().toNanos();
+        Duration latency = profile.getLatency().plusNanos(jitter > 0 ? random.nextLong(jitter) : 0);
+        if (random.nextDouble() < profile.getErrorRate()) {
+            return Mono.delay(latency).then(Mono.error(new IllegalStateException("simulated error on " + id)));
+        }
+        return Mono.delay(latency).thenReturn(payload);
+    }
+
+    /**
+     * getId.
+     *
+     * @return id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * getPort.
+     *
+     * @return port
+     */
+    public int getPort() {
+        return channel.address().getPort();
+    }
+
+    /**
+     * getRequests.
+     *
+     * @return requests handled
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+}
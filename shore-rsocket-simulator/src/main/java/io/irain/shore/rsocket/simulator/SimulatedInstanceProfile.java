@@ -0,0 +1,61 @@
+package io.irain.shore.rsocket.simulator;
+
+import java.time.Duration;
+
+/**
+ * simulated instance profile, latency and error behaviour of one in-process server.
+ * @author youta
+ */
+public class SimulatedInstanceProfile {
+    private final Duration latency;
+    private final Duration jitter;
+    private final double errorRate;
+
+    /**
+     * Constructor.
+     * @param latency base latency
+     * @param jitter max random latency added to the base latency
+     * @param errorRate ratio of requests failing, 0 to 1
+     */
+    public SimulatedInstanceProfile(Duration latency, Duration jitter, double errorRate) {
+        this.latency = latency;
+        this.jitter = jitter;
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * Healthy profile without jitter and errors.
+     * @param latency latency
+     * @return simulated instance profile
+     */
+    public static SimulatedInstanceProfile healthy(Duration latency) {
+        return new SimulatedInstanceProfile(latency, Duration.ZERO, 0);
+    }
+
+    /**
+     * getLatency.
+     *
+     * @return latency
+     */
+    public Duration getLatency() {
+        return latency;
+    }
+
+    /**
+     * getJitter.
+     *
+     * @return jitter
+     */
+    public Duration getJitter() {
+        return jitter;
+    }
+
+    /**
+     * getErrorRate.
+     *
+     * @return error rate
+     */
+    public double getErrorRate() {
+        return errorRate;
+    }
+}
@@ -0,0 +1,125 @@
+package io.irain.shore.rsocket.simulator;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * simulation report, throughput, latency percentiles and per-instance traffic share of one run.
+ * @author youta
+ */
+public class SimulationReport {
+    private final Duration elapsed;
+    private final long requests;
+    private final long errors;
+    private final long[] sortedLatencies;
+    private final Map<String, Long> instanceRequests;
+
+    /**
+     * Constructor.
+     * @param elapsed elapsed time of the run
+     * @param requests requests sent
+     * @param errors failed requests
+     * @param sortedLatencies latencies of successful requests in nanoseconds, sorted ascending
+     * @param instanceRequests instance id and requests handled mapping
+     */
+    public SimulationReport(Duration elapsed, long requests, long errors, long[] sortedLatencies, Map<String, Long> instanceRequests) {
+        this.elapsed = elapsed;
+        this.requests = requests;
+        this.errors = errors;
+        this.sortedLatencies = sortedLatencies;
+        this.instanceRequests = instanceRequests;
+    }
+
+    /**
+     * Get throughput of successful requests.
+     * @return requests per second
+     */
+    public double getThroughput() {
+        return sortedLatencies.length * 1000.0 / Math.max(1, elapsed.toMillis());
+    }
+
+    /**
+     * Get latency percentile of successful requests.
+     * @param percentile percentile, 0 to 100
+     * @return latency
+     */
+    public Duration getLatency(double percentile) {
+        if (sortedLatencies.length == 0) {
+            return Duration.ZERO;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sortedLatencies.length) - 1;
+        return Duration.ofNanos(sortedLatencies[Math.min(sortedLatencies.length - 1, Math.max(0, index))]);
+    }
+
+    /**
+     * Get traffic share of the instance.
+     * @param instanceId instance id
+     * @return ratio of requests handled by the instance, 0 to 1
+     */
+    public double getShare(String instanceId) {
+        long total = instanceRequests.values().stream().mapToLong(Long::longValue).sum();
+        return total == 0 ? 0 : (double) instanceRequests.getOrDefault(instanceId, 0L) / total;
+    }
+
+    /**
+     * getElapsed.
+     *
+     * @return elapsed
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * getRequests.
+     *
+     * @return requests
+     */
+    public long getRequests() {
+        return requests;
+    }
+
+    /**
+     * getErrors.
+     *
+     * @return errors
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * getInstanceRequests.
+     *
+     * @return instance id and requests handled mapping
+     */
+    public Map<String, Long> getInstanceRequests() {
+        return instanceRequests;
+    }
+
+    /**
+     * toString.
+     *
+     * @return report
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("elapsed: %d ms, requests: %d, errors: %d, throughput: %.1f/s%n",
+                elapsed.toMillis(), requests, errors, getThroughput()));
+        report.append(String.format("latency p50: %.2f ms, p90: %.2f ms, p99: %.2f ms, max: %.2f ms%n",
+                millis(getLatency(50)), millis(getLatency(90)), millis(getLatency(99)), millis(getLatency(100))));
+        instanceRequests.forEach((instanceId, handled) ->
+                report.append(String.format("%s: %d requests, %.1f%%%n", instanceId, handled, getShare(instanceId) * 100)));
+        return report.toString();
+    }
+
+    /**
+     * Convert to fractional milliseconds.
+     * @param duration duration
+     * @return milliseconds
+     */
+    private static double millis(Duration duration) {
+        return duration.toNanos() / 1_000_000.0;
+    }
+}
@@ -0,0 +1,22 @@
+package io.irain.shore.rsocket.simulator;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * simulation service, called through the rsocket remote service proxy.
+ * @author youta
+ */
+public interface SimulationService {
+
+    /**
+     * service name of simulated instances.
+     */
+    String SERVICE_NAME = "simulation";
+
+    /**
+     * Echo payload.
+     * @param payload payload
+     * @return payload
+     */
+    Mono<String> echo(String payload);
+}